@@ -0,0 +1,206 @@
+// File: AssetPack.java
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A single file of images already scaled to display size, stored as raw
+ * pixels so they can be shown without any image decoding.
+ *
+ * <pre>
+ * long   magic "SEAPACK1"
+ * int    image count
+ * per image: short name length, UTF-8 name, int width, int height,
+ *            int bytes per pixel (3 = BGR, 4 = ABGR), long data offset
+ * pixel data, each image starting on an 8-byte boundary
+ * </pre>
+ *
+ * The reader maps the file and copies an image's pixels straight into the
+ * backing array of a new BufferedImage.
+ */
+public final class AssetPack {
+    static final long MAGIC = 0x5345415041434B31L;   // "SEAPACK1"
+
+    /** Size of location images in the GUI. */
+    public static final int LOCATION_WIDTH = 280;
+    public static final int LOCATION_HEIGHT = 200;
+
+    private final ByteBuffer data;
+    private final Map<String, int[]> entries = new HashMap<>();   // name -> width, height, bytes per pixel, offset
+
+    private AssetPack(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.capacity() < 12 || data.getLong(0) != MAGIC) {
+            throw new IOException("Not an asset pack");
+        }
+        ByteBuffer index = data.duplicate().position(8);
+        int count = index.getInt();
+        for (int i = 0; i < count; i++) {
+            byte[] name = new byte[index.getShort() & 0xffff];
+            index.get(name);
+            int width = index.getInt();
+            int height = index.getInt();
+            int pixelSize = index.getInt();
+            long offset = index.getLong();
+            if (offset + (long) width * height * pixelSize > data.capacity() || offset > Integer.MAX_VALUE) {
+                throw new IOException("Asset pack entry out of bounds");
+            }
+            entries.put(new String(name, StandardCharsets.UTF_8), new int[] {width, height, pixelSize, (int) offset});
+        }
+    }
+
+    /**
+     * Maps an asset pack.
+     *
+     * @throws IOException If the file cannot be read or is not a pack.
+     */
+    public static AssetPack open(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            return new AssetPack(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Maps an asset pack if the file exists and is readable.
+     *
+     * @return The pack, or null.
+     */
+    public static AssetPack openIfPresent(String filename) {
+        if (!new File(filename).isFile()) {
+            return null;
+        }
+        try {
+            return open(filename);
+        } catch (IOException e) {
+            System.err.println("Ignoring asset pack " + filename + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Tells whether the pack holds an image of the given name and size. */
+    public boolean contains(String name, int width, int height) {
+        int[] entry = entries.get(name);
+        return entry != null && entry[0] == width && entry[1] == height;
+    }
+
+    /**
+     * Builds an image from its raw pixels.
+     *
+     * @return The image, or null if the pack does not hold it.
+     */
+    public BufferedImage image(String name) {
+        int[] entry = entries.get(name);
+        if (entry == null) {
+            return null;
+        }
+        int type = entry[2] == 4 ? BufferedImage.TYPE_4BYTE_ABGR : BufferedImage.TYPE_3BYTE_BGR;
+        BufferedImage image = new BufferedImage(entry[0], entry[1], type);
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        data.duplicate().position(entry[3]).get(pixels);
+        return image;
+    }
+
+    /**
+     * Scales every image in a directory and writes them into one pack.
+     *
+     * @param directory The directory of source images.
+     * @param output The pack file to write.
+     * @param sizes Display sizes by image name; others use the location size.
+     * @return The number of images packed.
+     */
+    public static int pack(File directory, String output, Map<String, int[]> sizes) throws IOException {
+        Map<String, BufferedImage> images = new TreeMap<>();
+        File[] files = directory.listFiles(File::isFile);
+        if (files == null) {
+            throw new IOException("Not a directory: " + directory);
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String name = file.getName();
+            int dot = name.lastIndexOf('.');
+            name = dot > 0 ? name.substring(0, dot) : name;
+            if (images.containsKey(name)) {
+                continue;
+            }
+            int[] size = sizes.getOrDefault(name, new int[] {LOCATION_WIDTH, LOCATION_HEIGHT});
+            BufferedImage image = ImageService.decodeScaled(file, size[0], size[1]);
+            if (image != null) {
+                images.put(name, image);
+            }
+        }
+
+        List<byte[]> names = new ArrayList<>();
+        int indexSize = 12;
+        for (String name : images.keySet()) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            names.add(bytes);
+            indexSize += 2 + bytes.length + 20;
+        }
+
+        Path target = Paths.get(output).toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeLong(MAGIC);
+            out.writeInt(images.size());
+            long offset = align(indexSize);
+            int i = 0;
+            for (BufferedImage image : images.values()) {
+                byte[] name = names.get(i++);
+                int pixelSize = image.getColorModel().hasAlpha() ? 4 : 3;
+                out.writeShort(name.length);
+                out.write(name);
+                out.writeInt(image.getWidth());
+                out.writeInt(image.getHeight());
+                out.writeInt(pixelSize);
+                out.writeLong(offset);
+                offset = align(offset + (long) image.getWidth() * image.getHeight() * pixelSize);
+            }
+            long position = indexSize;
+            for (BufferedImage image : images.values()) {
+                out.write(new byte[(int) (align(position) - position)]);
+                byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+                out.write(pixels);
+                position = align(position) + pixels.length;
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return images.size();
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    /**
+     * Packs the images directory.
+     *
+     * Usage: java AssetPack [images directory] [pack file]
+     */
+    public static void main(String[] args) throws IOException {
+        File directory = new File(args.length > 0 ? args[0] : "images");
+        String output = args.length > 1 ? args[1] : "images.pack";
+        Map<String, int[]> sizes = new HashMap<>();
+        sizes.put("logo", new int[] {200, 80});
+        int count = pack(directory, output, sizes);
+        System.out.println("Packed " + count + " images into " + output
+            + " (" + new File(output).length() / 1024 + " KB)");
+    }
+}
@@ -0,0 +1,108 @@
+// File: AutosaveScheduler.java
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves the game once play has been quiet for a while. Every engine event
+ * pushes the pending autosave back by the quiet period, but never beyond
+ * the maximum delay after the first unsaved change, so a burst of actions
+ * costs one save and a long session is still saved regularly.
+ */
+public class AutosaveScheduler implements GameEventListener, AutoCloseable {
+    private final GameEngine engine;
+    private final Executor gameThread;
+    private final long quietMillis;
+    private final long maxDelayMillis;
+    private final ScheduledExecutorService timer;
+    private ScheduledFuture<?> pending;
+    private long firstChange = -1;   // System.nanoTime of the oldest unsaved change
+
+    /**
+     * @param engine The engine to save.
+     * @param gameThread Runs tasks on the thread that drives the engine.
+     * @param quietMillis How long play must be idle before saving.
+     * @param maxDelayMillis The longest a change may stay unsaved.
+     */
+    public AutosaveScheduler(GameEngine engine, Executor gameThread, long quietMillis, long maxDelayMillis) {
+        this.engine = engine;
+        this.gameThread = gameThread;
+        this.quietMillis = quietMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void locationEntered(int locationId, int energy) {
+        changed();
+    }
+
+    @Override
+    public void energyChanged(int energy) {
+        changed();
+    }
+
+    @Override
+    public void enemyChanged(int locationId, int enemyId, int health) {
+        changed();
+    }
+
+    @Override
+    public void scoreChanged(int score) {
+        changed();
+    }
+
+    @Override
+    public void missionChanged(int missionIndex, int completedMissions) {
+        changed();
+    }
+
+    @Override
+    public void missionAccepted(int missionIndex) {
+        changed();
+    }
+
+    @Override
+    public void missionEnded(int missionIndex, int completedMissions) {
+        changed();
+    }
+
+    private synchronized void changed() {
+        long now = System.nanoTime();
+        if (firstChange < 0) {
+            firstChange = now;
+        }
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        long waited = TimeUnit.NANOSECONDS.toMillis(now - firstChange);
+        long delay = Math.max(0, Math.min(quietMillis, maxDelayMillis - waited));
+        pending = timer.schedule(this::fire, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void fire() {
+        synchronized (this) {
+            firstChange = -1;
+            pending = null;
+        }
+        gameThread.execute(() -> engine.autosave().exceptionally(e -> {
+            System.err.println("Autosave failed: " + e.getMessage());
+            return null;
+        }));
+    }
+
+    @Override
+    public synchronized void close() {
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        timer.shutdown();
+    }
+}
@@ -0,0 +1,94 @@
+// File: CommandLine.java
+
+import java.util.Locale;
+
+/**
+ * One typed command split into lower-case words. The split is a single
+ * scan over the line with no regular expression, and a CommandLine is
+ * reused from one command to the next, so the only allocations are the
+ * words themselves. Words that are already lower case are taken from the
+ * line as they are.
+ */
+public final class CommandLine {
+    private String[] words = new String[8];
+    private int[] bounds = new int[16];   // start and end of each word in the line
+    private String source;
+    private int size;
+
+    /**
+     * Splits a line at whitespace, replacing the words held before.
+     *
+     * @return false if the line holds no words.
+     */
+    public boolean parse(String line) {
+        source = line;
+        size = 0;
+        int length = line.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && isSpace(line.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            int start = i;
+            boolean lower = true;
+            while (i < length && !isSpace(line.charAt(i))) {
+                char c = line.charAt(i++);
+                if (c >= 128 || (c >= 'A' && c <= 'Z')) {
+                    lower = false;
+                }
+            }
+            String word = line.substring(start, i);
+            add(lower ? word : word.toLowerCase(Locale.ROOT), start, i);
+        }
+        return size > 0;
+    }
+
+    private void add(String word, int start, int end) {
+        if (size == words.length) {
+            String[] grown = new String[size * 2];
+            System.arraycopy(words, 0, grown, 0, size);
+            words = grown;
+            int[] grownBounds = new int[size * 4];
+            System.arraycopy(bounds, 0, grownBounds, 0, size * 2);
+            bounds = grownBounds;
+        }
+        bounds[size * 2] = start;
+        bounds[size * 2 + 1] = end;
+        words[size++] = word;
+    }
+
+    // The characters \s matches in a regular expression.
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /** The number of words. */
+    public int size() { return size; }
+
+    /** The command word. */
+    public String name() { return words[0]; }
+
+    /**
+     * Returns a word; word 0 is the command.
+     *
+     * @throws IndexOutOfBoundsException If there are not that many words.
+     */
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Word " + index + " of " + size);
+        }
+        return words[index];
+    }
+
+    /**
+     * Returns a word as it was typed, for arguments where case matters
+     * such as file names.
+     */
+    public String original(int index) {
+        get(index);
+        return source.substring(bounds[index * 2], bounds[index * 2 + 1]);
+    }
+}
@@ -0,0 +1,83 @@
+// File: CommandRegistry.java
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The commands the game understands, by name, with the help line of each.
+ * Looking a command up is one hash probe, however many there are.
+ */
+public class CommandRegistry {
+
+    /** Runs one command. */
+    @FunctionalInterface
+    public interface Handler {
+        void run(CommandLine line) throws Exception;
+    }
+
+    /** A registered command. */
+    public static final class Command {
+        private final String name;
+        private final String usage;
+        private final String description;
+        private final Handler handler;
+        private final String metric;
+
+        private Command(String name, String usage, String description, Handler handler) {
+            this.name = name;
+            this.usage = usage;
+            this.description = description;
+            this.handler = handler;
+            this.metric = "command " + name;
+        }
+
+        public String getName() { return name; }
+        public Handler getHandler() { return handler; }
+        /** The name its run times are recorded under in GameMetrics. */
+        public String getMetric() { return metric; }
+
+        /** The line shown for the command by help. */
+        public String helpLine() {
+            StringBuilder line = new StringBuilder("  ").append(usage);
+            while (line.length() < 16) {
+                line.append(' ');
+            }
+            return line.append(" - ").append(description).toString();
+        }
+    }
+
+    private final Map<String, Command> commands = new HashMap<>();
+    private final List<Command> inOrder = new ArrayList<>();
+
+    /**
+     * Adds a command. A command registered again under the same name
+     * replaces the old one.
+     *
+     * @param usage The name and its arguments, as shown by help.
+     */
+    public void register(String name, String usage, String description, Handler handler) {
+        Command command = new Command(name, usage, description, handler);
+        Command old = commands.put(name, command);
+        if (old != null) {
+            inOrder.set(inOrder.indexOf(old), command);
+        } else {
+            inOrder.add(command);
+        }
+    }
+
+    /** Returns the command with a name, or null if there is none. */
+    public Command lookup(String name) {
+        return commands.get(name);
+    }
+
+    /** The help line of every command, in the order they were registered. */
+    public List<String> helpLines() {
+        List<String> lines = new ArrayList<>(inOrder.size());
+        for (Command command : inOrder) {
+            lines.add(command.helpLine());
+        }
+        return lines;
+    }
+}
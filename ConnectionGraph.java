@@ -0,0 +1,270 @@
+// File: ConnectionGraph.java
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Immutable adjacency of the galaxy in compressed-sparse-row form. The
+ * outgoing edges of node {@code n} are the indices
+ * {@code [firstEdge(n), endEdge(n))}, and {@code target(e)} gives the node
+ * an edge leads to. Targets of each node are sorted by id, so iterating
+ * them allocates nothing and membership tests are a binary search. Every
+ * edge carries the energy it costs to travel.
+ */
+public class ConnectionGraph implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Energy cost of an edge that does not specify its own. */
+    public static final int DEFAULT_EDGE_COST = 10;
+
+    private final int[] offsets;   // node -> first edge, length nodeCount + 1
+    private final int[] targets;   // edge -> target node
+    private final int[] costs;     // edge -> energy cost
+    private transient volatile int[] components;   // node -> strongly connected component, built on first use
+
+    private ConnectionGraph(int[] offsets, int[] targets, int[] costs) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.costs = costs;
+    }
+
+    /**
+     * Creates a graph with the given number of nodes and no edges.
+     *
+     * @param nodeCount The number of nodes.
+     * @return An empty graph.
+     */
+    public static ConnectionGraph empty(int nodeCount) {
+        return new ConnectionGraph(new int[nodeCount + 1], new int[0], new int[0]);
+    }
+
+    /**
+     * Wraps arrays read back from a world image. The arrays must already be
+     * in the layout a Builder produces.
+     */
+    static ConnectionGraph fromArrays(int[] offsets, int[] targets, int[] costs) {
+        return new ConnectionGraph(offsets, targets, costs);
+    }
+
+    public int nodeCount() {
+        return offsets.length - 1;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    public int firstEdge(int node) {
+        return node >= 0 && node < nodeCount() ? offsets[node] : 0;
+    }
+
+    public int endEdge(int node) {
+        return node >= 0 && node < nodeCount() ? offsets[node + 1] : 0;
+    }
+
+    public int degree(int node) {
+        return endEdge(node) - firstEdge(node);
+    }
+
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    public int cost(int edge) {
+        return costs[edge];
+    }
+
+    /**
+     * Finds the edge between two nodes.
+     *
+     * @param from The source node.
+     * @param to The target node.
+     * @return The edge index, or -1 if the nodes are not connected.
+     */
+    public int edgeTo(int from, int to) {
+        if (from < 0 || to < 0 || from >= nodeCount()) {
+            return -1;
+        }
+        int edge = Arrays.binarySearch(targets, offsets[from], offsets[from + 1], to);
+        return edge >= 0 ? edge : -1;
+    }
+
+    public boolean hasEdge(int from, int to) {
+        return edgeTo(from, to) >= 0;
+    }
+
+    /**
+     * Returns the strongly connected component of a node: two nodes share
+     * one exactly when each can be reached from the other, so they reach
+     * the same nodes. The components are found once, on first use; graphs
+     * are shared between threads, and two threads that find them at once
+     * find the same thing.
+     *
+     * @return The component number, or -1 if there is no such node.
+     */
+    public int component(int node) {
+        if (node < 0 || node >= nodeCount()) {
+            return -1;
+        }
+        int[] found = components;
+        if (found == null) {
+            found = findComponents();
+            components = found;
+        }
+        return found[node];
+    }
+
+    // Tarjan's algorithm with an explicit call stack, so long chains of
+    // locations cannot overflow the thread's stack.
+    private int[] findComponents() {
+        int n = nodeCount();
+        int[] component = new int[n];
+        int[] order = new int[n];        // visit order plus one, 0 while unvisited
+        int[] low = new int[n];
+        boolean[] open = new boolean[n];   // on the stack of an unfinished component
+        int[] stack = new int[n];
+        int[] callNode = new int[n];
+        int[] callEdge = new int[n];
+        int visited = 0;
+        int count = 0;
+        int top = 0;
+        for (int start = 0; start < n; start++) {
+            if (order[start] != 0) {
+                continue;
+            }
+            int depth = 0;
+            callNode[0] = start;
+            callEdge[0] = offsets[start];
+            order[start] = low[start] = ++visited;
+            stack[top++] = start;
+            open[start] = true;
+            while (depth >= 0) {
+                int node = callNode[depth];
+                if (callEdge[depth] < offsets[node + 1]) {
+                    int next = targets[callEdge[depth]++];
+                    if (order[next] == 0) {
+                        order[next] = low[next] = ++visited;
+                        stack[top++] = next;
+                        open[next] = true;
+                        depth++;
+                        callNode[depth] = next;
+                        callEdge[depth] = offsets[next];
+                    } else if (open[next]) {
+                        low[node] = Math.min(low[node], order[next]);
+                    }
+                    continue;
+                }
+                if (low[node] == order[node]) {
+                    int member;
+                    do {
+                        member = stack[--top];
+                        open[member] = false;
+                        component[member] = count;
+                    } while (member != node);
+                    count++;
+                }
+                if (--depth >= 0) {
+                    int caller = callNode[depth];
+                    low[caller] = Math.min(low[caller], low[node]);
+                }
+            }
+        }
+        return component;
+    }
+
+    /**
+     * Collects directed edges and packs them into a ConnectionGraph.
+     * Duplicate edges are merged when the graph is built, keeping the
+     * cheapest cost.
+     */
+    public static class Builder {
+        private int[] sources = new int[64];
+        private int[] destinations = new int[64];
+        private int[] edgeCosts = new int[64];
+        private int count;
+
+        public Builder() {
+        }
+
+        /**
+         * Creates a builder pre-filled with every edge of an existing graph.
+         *
+         * @param graph The graph to copy.
+         */
+        public Builder(ConnectionGraph graph) {
+            for (int node = 0; node < graph.nodeCount(); node++) {
+                for (int e = graph.firstEdge(node); e < graph.endEdge(node); e++) {
+                    addEdge(node, graph.target(e), graph.cost(e));
+                }
+            }
+        }
+
+        public void addEdge(int from, int to) {
+            addEdge(from, to, DEFAULT_EDGE_COST);
+        }
+
+        public void addEdge(int from, int to, int cost) {
+            if (cost < 0) {
+                throw new IllegalArgumentException("Negative edge cost: " + cost);
+            }
+            if (count == sources.length) {
+                sources = Arrays.copyOf(sources, count * 2);
+                destinations = Arrays.copyOf(destinations, count * 2);
+                edgeCosts = Arrays.copyOf(edgeCosts, count * 2);
+            }
+            sources[count] = from;
+            destinations[count] = to;
+            edgeCosts[count] = cost;
+            count++;
+        }
+
+        /**
+         * Builds the graph with a counting sort over the source nodes.
+         *
+         * @param nodeCount The number of nodes; must exceed every id added.
+         * @return The packed graph.
+         */
+        public ConnectionGraph build(int nodeCount) {
+            int[] offsets = new int[nodeCount + 1];
+            for (int i = 0; i < count; i++) {
+                offsets[sources[i] + 1]++;
+            }
+            for (int n = 0; n < nodeCount; n++) {
+                offsets[n + 1] += offsets[n];
+            }
+            // Pack (target, cost) into one long so sorting a row orders by
+            // target first and puts the cheapest duplicate in front.
+            long[] edges = new long[count];
+            int[] next = Arrays.copyOf(offsets, nodeCount);
+            for (int i = 0; i < count; i++) {
+                edges[next[sources[i]]++] = ((long) destinations[i] << 32) | edgeCosts[i];
+            }
+
+            // Sort each row and squeeze out duplicate edges.
+            int[] targets = new int[count];
+            int[] costs = new int[count];
+            int write = 0;
+            int rowStart = 0;
+            for (int n = 0; n < nodeCount; n++) {
+                int rowEnd = offsets[n + 1];
+                Arrays.sort(edges, rowStart, rowEnd);
+                offsets[n] = write;
+                for (int e = rowStart; e < rowEnd; e++) {
+                    int target = (int) (edges[e] >>> 32);
+                    if (write == offsets[n] || targets[write - 1] != target) {
+                        targets[write] = target;
+                        costs[write] = (int) edges[e];
+                        write++;
+                    }
+                }
+                rowStart = rowEnd;
+            }
+            offsets[nodeCount] = write;
+            if (write < count) {
+                targets = Arrays.copyOf(targets, write);
+                costs = Arrays.copyOf(costs, write);
+            }
+            return new ConnectionGraph(offsets, targets, costs);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+// File: ConsoleModel.java
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+/**
+ * Feeds messages into a console text area with bounded cost. Messages can
+ * be appended from any thread; they are queued and written to the document
+ * in one insert per frame on the event thread. Only the newest
+ * {@code maxLines} lines are kept: the length of each line sits in a ring
+ * buffer, so the oldest lines can be cut off the front of the document in
+ * one remove without searching it.
+ */
+public class ConsoleModel {
+    /** Delay between flushes, about one frame at 60 Hz. */
+    static final int FRAME_MS = 16;
+
+    private final JTextArea area;
+    private final int maxLines;
+    private final ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Timer frameTimer;
+
+    // Ring of line lengths, including the newline; touched on the EDT only.
+    private final int[] lineLengths;
+    private int head;
+    private int lineCount;
+
+    /**
+     * @param area The text area to write into.
+     * @param maxLines The number of lines of scrollback to keep.
+     */
+    public ConsoleModel(JTextArea area, int maxLines) {
+        this.area = area;
+        this.maxLines = maxLines;
+        this.lineLengths = new int[maxLines];
+        this.frameTimer = new Timer(FRAME_MS, e -> flush());
+        this.frameTimer.setRepeats(false);
+    }
+
+    /**
+     * Queues a message, followed by a newline. Safe to call from any thread.
+     */
+    public void append(String message) {
+        queue.add(message + "\n");
+        if (flushScheduled.compareAndSet(false, true)) {
+            if (SwingUtilities.isEventDispatchThread()) {
+                frameTimer.restart();
+            } else {
+                SwingUtilities.invokeLater(frameTimer::restart);
+            }
+        }
+    }
+
+    /**
+     * Removes all text, including messages still queued. Call on the EDT.
+     */
+    public void clear() {
+        queue.clear();
+        area.setText("");
+        head = 0;
+        lineCount = 0;
+    }
+
+    /**
+     * Writes every queued message to the document. Runs on the EDT.
+     */
+    void flush() {
+        flushScheduled.set(false);
+        StringBuilder text = new StringBuilder();
+        String message;
+        while ((message = queue.poll()) != null) {
+            text.append(message);
+        }
+        if (text.length() == 0) {
+            return;
+        }
+
+        // Every message ends in a newline, so the batch is whole lines. If
+        // the batch alone overflows the scrollback, its oldest lines are
+        // dropped before they ever reach the document.
+        int newLines = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                newLines++;
+            }
+        }
+        int start = 0;
+        for (; newLines > maxLines; newLines--) {
+            start = text.indexOf("\n", start) + 1;
+        }
+
+        Document document = area.getDocument();
+        try {
+            int removed = 0;
+            while (lineCount > 0 && lineCount + newLines > maxLines) {
+                removed += lineLengths[head];
+                head = (head + 1) % maxLines;
+                lineCount--;
+            }
+            if (removed > 0) {
+                document.remove(0, removed);
+            }
+            for (int lineStart = start; lineStart < text.length(); ) {
+                int lineEnd = text.indexOf("\n", lineStart) + 1;
+                lineLengths[(head + lineCount) % maxLines] = lineEnd - lineStart;
+                lineCount++;
+                lineStart = lineEnd;
+            }
+            document.insertString(document.getLength(), text.substring(start), null);
+        } catch (BadLocationException e) {
+            throw new IllegalStateException(e);
+        }
+        area.setCaretPosition(document.getLength());
+    }
+}
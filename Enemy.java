@@ -2,23 +2,42 @@
 // Author: Nasir Mirza & Conor
 // Date: December 9, 2024
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
-import java.util.List;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Represents an enemy in a game with attributes such as health, attack power, 
  * weaknesses, and defeated status.
+ *
+ * An Enemy is a handle to one entry of an {@link EnemyStore}, which holds the
+ * data its type shares, plus the enemy's own current health; the enemies of
+ * a world all live in its store, and the handles are made as they are asked
+ * for. An enemy built on its own gets a store of one.
  */
 public class Enemy implements Serializable {
     private static final long serialVersionUID = 1L;
 
-    private String name;            // Name of the enemy
-    private int maxHealth;          // Maximum health points of the enemy
-    private int currentHealth;      // Current health points of the enemy
-    private int attackPower;        // Attack power of the enemy
-    private List<String> weaknesses; // List to store weaknesses of the enemy
-    private boolean defeated;       // Whether the enemy is defeated or not
+    // Enemies are written with the fields they had as plain objects, so
+    // saves from before the store still read.
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("name", String.class),
+        new ObjectStreamField("maxHealth", int.class),
+        new ObjectStreamField("currentHealth", int.class),
+        new ObjectStreamField("attackPower", int.class),
+        new ObjectStreamField("weaknesses", List.class),
+        new ObjectStreamField("defeated", boolean.class),
+        new ObjectStreamField("id", int.class)
+    };
+
+    private transient EnemyStore store;   // holds the enemy's data
+    private transient int index;          // the enemy's entry in the store
+    private transient int health;         // current health, which the store does not hold
+    private transient int id = -1;        // Position in its location's roster, used by save files
 
     /**
      * Constructs an Enemy object with specified name, health, and attack power.
@@ -28,12 +47,34 @@ public class Enemy implements Serializable {
      * @param attackPower The attack power of the enemy.
      */
     public Enemy(String name, int health, int attackPower) {
-        this.name = name;
-        this.maxHealth = health;
-        this.currentHealth = health;
-        this.attackPower = attackPower;
-        this.weaknesses = new ArrayList<>();
-        this.defeated = false;
+        this.store = new EnemyStore(1);
+        this.index = store.add(name, health, attackPower, -1);
+        this.health = store.health(index);
+    }
+
+    /**
+     * A handle to an enemy in a store.
+     * 
+     * @param enemyId The enemy's id within its location, or -1.
+     * @param health Its current health, at most its maximum.
+     */
+    Enemy(EnemyStore store, int index, int enemyId, int health) {
+        this.store = store;
+        this.index = index;
+        this.id = enemyId;
+        this.health = health;
+    }
+
+    /**
+     * A handle to a template enemy with the health it has in one game. It
+     * names the template's entry, so nothing is copied.
+     * 
+     * @param blueprint The enemy as loaded with the world.
+     * @param health The current health.
+     */
+    Enemy(Enemy blueprint, int health) {
+        this(blueprint.store, blueprint.index, blueprint.id, 0);
+        restoreHealth(health);
     }
 
     /**
@@ -43,11 +84,28 @@ public class Enemy implements Serializable {
      * @param damage The amount of damage to deal to the enemy.
      */
     public void takeDamage(int damage) {
-        currentHealth -= damage;
-        if (currentHealth <= 0) {
-            currentHealth = 0;
-            defeated = true;
-        }
+        restoreHealth(health - damage);
+    }
+
+    /**
+     * Sets the enemy's current health, as when restoring a saved game.
+     * 
+     * @param health The health to restore, clamped to the maximum.
+     */
+    void restoreHealth(int health) {
+        this.health = Math.max(0, Math.min(health, getMaxHealth()));
+    }
+
+    EnemyStore getStore() { return store; }
+    int getIndex() { return index; }
+
+    /**
+     * Gets the id of the enemy within its location.
+     * 
+     * @return The id, or -1 if the enemy has not been placed in a location.
+     */
+    public int getId() {
+        return id;
     }
 
     /**
@@ -56,7 +114,7 @@ public class Enemy implements Serializable {
      * @return The name of the enemy.
      */
     public String getName() { 
-        return name; 
+        return store.name(index);
     }
 
     /**
@@ -65,7 +123,7 @@ public class Enemy implements Serializable {
      * @return The current health of the enemy.
      */
     public int getCurrentHealth() { 
-        return currentHealth; 
+        return health;
     }
 
     /**
@@ -74,7 +132,7 @@ public class Enemy implements Serializable {
      * @return The maximum health of the enemy.
      */
     public int getMaxHealth() { 
-        return maxHealth; 
+        return store.maxHealth(index);
     }
 
     /**
@@ -83,7 +141,16 @@ public class Enemy implements Serializable {
      * @return The attack power of the enemy.
      */
     public int getAttackPower() { 
-        return attackPower; 
+        return store.attackPower(index);
+    }
+
+    /**
+     * Gets the weaknesses of the enemy, shared by every enemy of its type.
+     * 
+     * @return A read-only list of the weaknesses.
+     */
+    public List<String> getWeaknesses() {
+        return store.weaknesses(index);
     }
 
     /**
@@ -92,7 +159,7 @@ public class Enemy implements Serializable {
      * @return True if the enemy is defeated, false otherwise.
      */
     public boolean isDefeated() { 
-        return defeated; 
+        return health == 0;
     }
 
     /**
@@ -101,7 +168,31 @@ public class Enemy implements Serializable {
      * @return The health percentage (from 0 to 100).
      */
     public int getHealthPercentage() {
-        return (int)((currentHealth * 100.0f) / maxHealth);
+        return (int)((getCurrentHealth() * 100.0f) / getMaxHealth());
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("name", getName());
+        fields.put("maxHealth", getMaxHealth());
+        fields.put("currentHealth", getCurrentHealth());
+        fields.put("attackPower", getAttackPower());
+        fields.put("weaknesses", new ArrayList<>(getWeaknesses()));
+        fields.put("defeated", isDefeated());
+        fields.put("id", id);
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        List<String> weaknesses = (List<String>) fields.get("weaknesses", null);
+        store = new EnemyStore(1);
+        int blueprint = store.blueprint((String) fields.get("name", null), fields.get("maxHealth", 0),
+            fields.get("attackPower", 0), weaknesses != null ? weaknesses : List.of());
+        index = store.add(blueprint, fields.get("currentHealth", 0), -1);
+        health = store.health(index);
+        id = fields.get("id", -1);
     }
 
     /**
@@ -113,6 +204,6 @@ public class Enemy implements Serializable {
     @Override
     public String toString() {
         return String.format("%s (Health: %d/%d, Attack: %d)", 
-            name, currentHealth, maxHealth, attackPower);
+            getName(), getCurrentHealth(), getMaxHealth(), getAttackPower());
     }
 }
@@ -0,0 +1,88 @@
+// File: EnemyRoster.java
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntPredicate;
+
+/**
+ * Name index over the enemies placed at one location. Every word of every
+ * enemy name is kept in lower case in one sorted array, so the enemies
+ * whose name has a word starting with a typed prefix are found by binary
+ * search instead of lower-casing and scanning every name on each command.
+ * A roster is built once from the world's template enemies and never
+ * changes; which of them are still alive is up to each game.
+ */
+final class EnemyRoster {
+    private final String[] keys;   // lower-case name words, sorted
+    private final int[] ids;       // enemy id of each key, ascending among equal keys
+
+    EnemyRoster(List<Enemy> enemies) {
+        int count = 0;
+        String[][] words = new String[enemies.size()][];
+        for (int id = 0; id < words.length; id++) {
+            words[id] = enemies.get(id).getName().toLowerCase(Locale.ROOT).trim().split("\\s+");
+            count += words[id].length;
+        }
+        Integer[] order = new Integer[count];
+        String[] unsortedKeys = new String[count];
+        int[] unsortedIds = new int[count];
+        for (int id = 0, k = 0; id < words.length; id++) {
+            for (String word : words[id]) {
+                unsortedKeys[k] = word;
+                unsortedIds[k] = id;
+                order[k] = k;
+                k++;
+            }
+        }
+        // Keys of one enemy are added in id order, so a stable sort keeps
+        // equal keys in ascending id order.
+        Arrays.sort(order, (a, b) -> unsortedKeys[a].compareTo(unsortedKeys[b]));
+        keys = new String[count];
+        ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = unsortedKeys[order[i]];
+            ids[i] = unsortedIds[order[i]];
+        }
+    }
+
+    /**
+     * Returns the lowest enemy id whose name has a word starting with a
+     * prefix, among the enemies a filter accepts. Each distinct word is
+     * checked only up to its first accepted enemy.
+     *
+     * @param prefix Lower case.
+     * @param present Tells whether an enemy id is still there.
+     * @return The id, or -1 if no accepted enemy matches.
+     */
+    int find(String prefix, IntPredicate present) {
+        int best = -1;
+        int i = lowerBound(prefix, 0);
+        while (i < keys.length && keys[i].startsWith(prefix)) {
+            int end = lowerBound(keys[i] + '\0', i + 1);   // past the last copy of this word
+            for (int j = i; j < end && (best < 0 || ids[j] < best); j++) {
+                if (present.test(ids[j])) {
+                    best = ids[j];
+                    break;
+                }
+            }
+            i = end;
+        }
+        return best;
+    }
+
+    // The first position whose key is not less than the given one.
+    private int lowerBound(String key, int from) {
+        int low = from;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
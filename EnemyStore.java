@@ -0,0 +1,157 @@
+// File: EnemyStore.java
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Enemies kept as columns instead of objects. What every enemy of one type
+ * shares (name, maximum health, attack power and weaknesses) is stored once
+ * as a blueprint. Each enemy is one entry in parallel primitive arrays
+ * holding its blueprint id and location id. An {@link Enemy} is a small
+ * handle naming an entry, made when asked for, and carries the enemy's
+ * current health itself.
+ *
+ * Entries never change once added. A world's enemies cost eight bytes each
+ * plus one blueprint per type, and a scan over them walks plain int arrays;
+ * games keep the health of the enemies they fight in their WorldState. Only
+ * stores built from old saves hold enemies added below full health, so the
+ * column for that is made when the first one is.
+ */
+public final class EnemyStore {
+    private static final List<String> NO_WEAKNESSES = List.of();
+
+    /** The blueprint table of a store. */
+    private static final class Blueprints {
+        String[] names = new String[8];
+        int[] maxHealth = new int[8];
+        int[] attackPower = new int[8];
+        List<?>[] weaknesses = new List<?>[8];
+        int size;
+        final Map<String, IntList> byName = new HashMap<>();   // blueprints with each name
+
+        // weak must be unmodifiable.
+        int intern(String name, int health, int attack, List<String> weak) {
+            IntList candidates = byName.computeIfAbsent(name, n -> new IntList(1));
+            for (int i = 0; i < candidates.size(); i++) {
+                int b = candidates.get(i);
+                if (maxHealth[b] == health && attackPower[b] == attack && weaknesses[b].equals(weak)) {
+                    return b;
+                }
+            }
+            if (size == names.length) {
+                int capacity = size * 2;
+                names = Arrays.copyOf(names, capacity);
+                maxHealth = Arrays.copyOf(maxHealth, capacity);
+                attackPower = Arrays.copyOf(attackPower, capacity);
+                weaknesses = Arrays.copyOf(weaknesses, capacity);
+            }
+            names[size] = name;
+            maxHealth[size] = health;
+            attackPower[size] = attack;
+            weaknesses[size] = weak;
+            candidates.add(size);
+            return size++;
+        }
+    }
+
+    private final Blueprints blueprints;
+    private int[] blueprint;
+    private int[] location;
+    private int[] health;   // the health each enemy was added with, null while all were at full
+    private int size;
+
+    public EnemyStore() {
+        this(8);
+    }
+
+    public EnemyStore(int expectedEnemies) {
+        blueprints = new Blueprints();
+        int capacity = Math.max(1, expectedEnemies);
+        blueprint = new int[capacity];
+        location = new int[capacity];
+    }
+
+    /**
+     * Returns the blueprint with these stats, adding it if there is none.
+     *
+     * @param weaknesses Copied into the blueprint; may be empty.
+     */
+    public int blueprint(String name, int maxHealth, int attackPower, List<String> weaknesses) {
+        return blueprints.intern(name, maxHealth, attackPower, List.copyOf(weaknesses));
+    }
+
+    /**
+     * Adds an enemy at full health.
+     *
+     * @param locationId The id of its location, or -1 for none.
+     * @return The index of the new enemy.
+     */
+    public int add(String name, int maxHealth, int attackPower, int locationId) {
+        return add(blueprints.intern(name, maxHealth, attackPower, NO_WEAKNESSES), maxHealth, locationId);
+    }
+
+    /**
+     * Adds an enemy of a blueprint.
+     *
+     * @param currentHealth Clamped to 0 and the blueprint's maximum.
+     * @return The index of the new enemy.
+     */
+    public int add(int blueprintId, int currentHealth, int locationId) {
+        if (size == blueprint.length) {
+            int capacity = size * 2;
+            blueprint = Arrays.copyOf(blueprint, capacity);
+            location = Arrays.copyOf(location, capacity);
+            if (health != null) {
+                health = Arrays.copyOf(health, capacity);
+            }
+        }
+        blueprint[size] = blueprintId;
+        location[size] = locationId;
+        int max = blueprints.maxHealth[blueprintId];
+        int clamped = Math.max(0, Math.min(currentHealth, max));
+        if (clamped != max && health == null) {
+            health = new int[blueprint.length];
+            for (int i = 0; i < size; i++) {
+                health[i] = maxHealth(i);
+            }
+        }
+        if (health != null) {
+            health[size] = clamped;
+        }
+        return size++;
+    }
+
+    /**
+     * Adds a copy of an enemy of another store with the given health. Its
+     * blueprint is added here too.
+     */
+    int addCopy(EnemyStore from, int index, int currentHealth, int locationId) {
+        int b = blueprints.intern(from.name(index), from.maxHealth(index), from.attackPower(index),
+            from.weaknesses(index));
+        return add(b, currentHealth, locationId);
+    }
+
+    /** Returns a handle to an enemy, with the health it was added with. */
+    public Enemy get(int index, int enemyId) {
+        return new Enemy(this, index, enemyId, health(index));
+    }
+
+    public int size() { return size; }
+    public int blueprintCount() { return blueprints.size; }
+
+    public int blueprintOf(int index) { return blueprint[index]; }
+    public String name(int index) { return blueprints.names[blueprint[index]]; }
+    public int maxHealth(int index) { return blueprints.maxHealth[blueprint[index]]; }
+    public int attackPower(int index) { return blueprints.attackPower[blueprint[index]]; }
+    /** The health an enemy was added with. */
+    public int health(int index) { return health != null ? health[index] : maxHealth(index); }
+    public int locationId(int index) { return location[index]; }
+
+    /** The weaknesses of an enemy's blueprint, as a read-only list. */
+    @SuppressWarnings("unchecked")
+    public List<String> weaknesses(int index) {
+        return (List<String>) blueprints.weaknesses[blueprint[index]];
+    }
+}
@@ -0,0 +1,25 @@
+// File: EngineOperationEvent.java
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event around one engine operation, such as a move
+ * or a fight. Recorded only while a recording with this event enabled is
+ * running, e.g. {@code java -XX:StartFlightRecording ...}.
+ */
+@Name("game.EngineOperation")
+@Label("Engine Operation")
+@Category("Game")
+@Description("A move, fight, search, save or load of the game engine")
+@StackTrace(false)
+class EngineOperationEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Location")
+    String location;
+}
@@ -0,0 +1,486 @@
+// File: GameCommands.java
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The text commands of the game. They drive a GameEngine and write their
+ * output through a GameGUI, so the Swing window and the headless runner
+ * accept exactly the same commands. Each command is a handler in a
+ * CommandRegistry; a subclass can register more, or replace one.
+ */
+public class GameCommands {
+    /** The save slot used by the save and load commands. */
+    public static final String SAVE_FILE = "savegame.dat";
+    /** How many turns undo can take back. */
+    static final int UNDO_LIMIT = 100;
+    private static final String UNKNOWN_METRIC = "command (unknown)";
+
+    private final GameData data;
+    private final GameEngine engine;
+    private final GameGUI out;
+    // Checkpoints share the engine's persistent state, so keeping many is cheap.
+    private final Deque<GameEngine.Checkpoint> history = new ArrayDeque<>();
+    private final Map<String, GameEngine.Checkpoint> checkpoints = new LinkedHashMap<>();
+    private final CommandRegistry registry = new CommandRegistry();
+    private final CommandLine line = new CommandLine();
+    private boolean inBatch;
+    private GameCommands parent;   // the commands that started this batch, if any
+
+    public GameCommands(GameData data, GameEngine engine, GameGUI out) {
+        this.data = data;
+        this.engine = engine;
+        this.out = out;
+
+        registry.register("move", "move <location>", "Move to a specified location",
+            args -> recordTurn(() -> handleMoveCommand(args)));
+        registry.register("look", "look", "Examine current location", args -> {
+            out.appendToConsole(engine.getCurrentLocationDescription());
+            displayPossibleMoves();
+        });
+        registry.register("moves", "moves", "Show available moves from current location",
+            args -> displayPossibleMoves());
+        registry.register("status", "status", "Display current game status", args -> displayGameStatus());
+        registry.register("missions", "missions", "List the missions on offer and those you carry",
+            args -> displayMissions());
+        registry.register("accept", "accept <number>", "Take on another mission from the list",
+            args -> recordTurn(() -> handleAcceptCommand(args)));
+        registry.register("drop", "drop <number>", "Give up an active mission",
+            args -> recordTurn(() -> handleDropCommand(args)));
+        registry.register("fight", "fight <enemy>", "Engage in combat with an enemy",
+            args -> recordTurn(() -> handleFightCommand(args)));
+        registry.register("search", "search <property> <value>", "Search for locations",
+            args -> recordTurn(() -> handleSearchCommand(args)));
+        registry.register("route", "route <location>", "Plan the cheapest route to a location",
+            this::handleRouteCommand);
+        registry.register("combatlog", "combatlog <quiet|summary|verbose>",
+            "Choose how much of each fight to show", this::handleCombatLogCommand);
+        registry.register("undo", "undo", "Take back the last move, fight, search, accept or drop", args -> handleUndoCommand());
+        registry.register("checkpoint", "checkpoint [name]", "Mark the game as it is now, or list the marks",
+            this::handleCheckpointCommand);
+        registry.register("rollback", "rollback <name>", "Return to a checkpoint", this::handleRollbackCommand);
+        registry.register("stats", "stats", "Show how long commands and engine operations take",
+            args -> engine.getMetrics().report().forEach(out::appendToConsole));
+        registry.register("batch", "batch <file>", "Run a script of commands quietly at full speed",
+            this::handleBatchCommand);
+        registry.register("save", "save", "Save current game", args -> save());
+        registry.register("load", "load", "Load saved game", args -> load());
+        registry.register("help", "help", "Show this help message", args -> displayHelp());
+    }
+
+    /** The commands this instance understands. */
+    public CommandRegistry getRegistry() { return registry; }
+
+    /** The engine these commands drive. */
+    GameEngine getEngine() { return engine; }
+
+    /**
+     * Runs one command line.
+     *
+     * @param command The line as typed.
+     */
+    public void execute(String command) {
+        if (command != null && line.parse(command)) {
+            execute(line);
+        }
+    }
+
+    private void execute(CommandLine line) {
+        long start = System.nanoTime();
+        CommandRegistry.Command found = registry.lookup(line.name());
+        try {
+            if (found != null) {
+                found.getHandler().run(line);
+            } else {
+                out.appendToConsole("Unknown command. Type 'help' for commands.");
+            }
+        } catch (Exception e) {
+            error("Error processing command", e);
+        } finally {
+            engine.getMetrics().recordSince(found != null ? found.getMetric() : UNKNOWN_METRIC, start);
+        }
+    }
+
+    /**
+     * Runs a script of commands, one per line, as fast as the engine
+     * allows. Nothing is shown while it runs; the window is brought up to
+     * date once at the end. Blank lines and lines starting with '#' are
+     * skipped, and "quit" or the end of the game stops the script.
+     *
+     * @return The number of commands run.
+     */
+    public int executeBatch(BufferedReader script) throws IOException {
+        HeadlessGUI quiet = new HeadlessGUI(null);
+        GameCommands batch = new GameCommands(data, engine, quiet);
+        batch.inBatch = true;
+        batch.parent = this;
+        remember(engine.checkpoint());
+        GameGUI window = engine.setGUI(quiet);
+        int count = 0;
+        try {
+            String command;
+            while (!engine.isFinished() && (command = script.readLine()) != null) {
+                if (!batch.line.parse(command) || batch.line.name().startsWith("#")) {
+                    continue;
+                }
+                if (batch.line.name().equals("quit") || batch.line.name().equals("exit")) {
+                    break;
+                }
+                batch.execute(batch.line);
+                count++;
+            }
+        } finally {
+            engine.setGUI(window);
+            engine.refreshGUI();
+            if (quiet.isGameOver()) {
+                window.gameOver();
+            } else if (quiet.isVictory()) {
+                window.victory();
+            }
+        }
+        return count;
+    }
+
+    private void handleMoveCommand(CommandLine args) {
+        if (args.size() < 2) {
+            out.appendToConsole("Move where? Specify a location.");
+            displayPossibleMoves();
+            return;
+        }
+
+        String destination = args.get(1);
+        Set<String> possibleMoves = engine.getPossibleMoves();
+        
+        if (!possibleMoves.contains(destination)) {
+            out.appendToConsole("Cannot move to " + destination + " from current location.");
+            displayPossibleMoves();
+            return;
+        }
+
+        if (engine.moveTo(destination)) {
+            out.appendToConsole("Moved to " + destination);
+            
+            
+            Mission currentMission = engine.getCurrentMission();
+            if (currentMission != null && 
+                currentMission.getTargetLocation().equalsIgnoreCase(destination) && 
+                currentMission.getTargetEnemy() == null) {
+                
+                out.appendToConsole("\n🎯 You've reached the mission target location!");
+            }
+        } else {
+            out.appendToConsole("Failed to move to " + destination + " (insufficient energy?)");
+            displayPossibleMoves();
+        }
+    }
+
+    private void handleFightCommand(CommandLine args) {
+        if (args.size() < 2) {
+            out.appendToConsole("Fight what? Specify an enemy.");
+            return;
+        }
+
+        String enemyName = args.get(1);
+        Enemy enemy = engine.findEnemyHere(enemyName);
+
+        if (enemy != null) {
+            engine.initiateCombat(enemy);
+        } else {
+            out.appendToConsole("No such enemy here: " + enemyName);
+        }
+    }
+
+    // Runs a command that may change the game and remembers the game as it
+    // was before, if it did.
+    private void recordTurn(Runnable command) {
+        GameEngine.Checkpoint before = engine.checkpoint();
+        command.run();
+        if (engine.hasChangedSince(before)) {
+            remember(before);
+        }
+    }
+
+    private void remember(GameEngine.Checkpoint checkpoint) {
+        if (history.size() == UNDO_LIMIT) {
+            history.removeLast();
+        }
+        history.push(checkpoint);
+    }
+
+    /**
+     * Forgets every turn undo could take back and every named checkpoint.
+     * Call it once a save has been applied: they belong to the game before
+     * it, and rolling back to one would write that game over the save.
+     */
+    public void forgetHistory() {
+        history.clear();
+        checkpoints.clear();
+        if (parent != null) {
+            parent.forgetHistory();
+        }
+    }
+
+    private void handleUndoCommand() {
+        GameEngine.Checkpoint previous = history.poll();
+        if (previous == null) {
+            out.appendToConsole("Nothing to undo.");
+            return;
+        }
+        engine.rollback(previous);
+        out.appendToConsole("Undone. Back at " + engine.getCurrentLocation()
+            + " with " + engine.getEnergy() + " energy.");
+    }
+
+    private void handleCheckpointCommand(CommandLine args) {
+        if (args.size() < 2) {
+            if (checkpoints.isEmpty()) {
+                out.appendToConsole("No checkpoints. Use 'checkpoint <name>' to make one.");
+                return;
+            }
+            out.appendToConsole("Checkpoints:");
+            checkpoints.forEach((name, checkpoint) -> out.appendToConsole("- " + name + " ("
+                + checkpoint.getLocation() + ", energy " + checkpoint.getEnergy()
+                + ", score " + checkpoint.getScore() + ")"));
+            return;
+        }
+        checkpoints.put(args.get(1), engine.checkpoint());
+        out.appendToConsole("Checkpoint '" + args.get(1) + "' saved.");
+    }
+
+    private void handleRollbackCommand(CommandLine args) {
+        if (args.size() < 2) {
+            out.appendToConsole("Usage: rollback <checkpoint>");
+            return;
+        }
+        GameEngine.Checkpoint checkpoint = checkpoints.get(args.get(1));
+        if (checkpoint == null) {
+            out.appendToConsole("No checkpoint named " + args.get(1));
+            return;
+        }
+        remember(engine.checkpoint());
+        engine.rollback(checkpoint);
+        out.appendToConsole("Rolled back to '" + args.get(1) + "'.");
+        displayGameStatus();
+    }
+
+    private void handleBatchCommand(CommandLine args) throws IOException {
+        if (args.size() < 2) {
+            out.appendToConsole("Usage: batch <file>");
+            return;
+        }
+        if (inBatch) {
+            out.appendToConsole("A batch script cannot start another batch.");
+            return;
+        }
+        long start = System.nanoTime();
+        int count;
+        try (BufferedReader script = Files.newBufferedReader(Paths.get(args.original(1)), StandardCharsets.UTF_8)) {
+            count = executeBatch(script);
+        }
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        out.appendToConsole("Ran " + count + " commands in " + millis + " ms. Type 'undo' to take the batch back.");
+        displayGameStatus();
+    }
+
+    private void handleCombatLogCommand(CommandLine args) {
+        if (args.size() >= 2) {
+            try {
+                engine.setCombatLog(CombatResolver.Verbosity.valueOf(args.get(1).toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                out.appendToConsole("Usage: combatlog quiet|summary|verbose");
+                return;
+            }
+        }
+        out.appendToConsole("Combat log: " + engine.getCombatLog().name().toLowerCase());
+    }
+
+    private void handleSearchCommand(CommandLine args) {
+        if (args.size() < 3) {
+            out.appendToConsole("Usage: search <property> <value>");
+            return;
+        }
+
+        String property = args.get(1);
+        String value = args.get(2);
+        List<String> locations = engine.searchLocationsDFS(property, value);
+        
+        if (locations == null || locations.isEmpty()) {
+            out.appendToConsole("No locations found with " + property + " = " + value);
+        } else {
+            out.appendToConsole("Found locations:");
+            locations.forEach(loc -> out.appendToConsole("- " + loc));
+        }
+    }
+
+    private void handleRouteCommand(CommandLine args) {
+        if (args.size() < 2) {
+            out.appendToConsole("Route to where? Specify a destination.");
+            return;
+        }
+
+        String destination = args.get(1);
+        if (!data.locations.containsKey(destination)) {
+            out.appendToConsole("Unknown location: " + destination);
+            return;
+        }
+
+        Route route = engine.planRoute(destination);
+        if (route == null) {
+            out.appendToConsole("No route from " + engine.getCurrentLocation() + " to " + destination);
+            return;
+        }
+
+        out.appendToConsole("\nRoute to " + destination + ":");
+        out.appendToConsole(route.toString());
+        if (route.isAffordable()) {
+            out.appendToConsole("You have enough energy for this trip.");
+        } else {
+            out.appendToConsole("Insufficient energy for this trip! You need "
+                + (route.getEnergyCost() - engine.getEnergy()) + " more.");
+        }
+    }
+
+    void displayPossibleMoves() {
+        Set<String> moves = engine.getPossibleMoves();
+        if (moves.isEmpty()) {
+            out.appendToConsole("\nNo available moves from current location!");
+        } else {
+            out.appendToConsole("\nPossible moves from " + engine.getCurrentLocation() + ":");
+            moves.forEach(move -> out.appendToConsole("  - " + move));
+        }
+    }
+
+    void displayGameStatus() {
+        out.appendToConsole("\nCurrent Status:");
+        out.appendToConsole("Location: " + engine.getCurrentLocation());
+        out.appendToConsole("Energy: " + engine.getEnergy());
+        out.appendToConsole("Score: " + engine.getScore());
+        
+        List<Mission> active = engine.getActiveMissions();
+        if (active.size() == 1) {
+            out.appendToConsole("\nCurrent Mission:");
+            out.appendToConsole(active.get(0).toString());
+        } else if (!active.isEmpty()) {
+            out.appendToConsole("\nActive Missions (" + active.size() + "):");
+            active.forEach(mission -> out.appendToConsole(mission.toString()));
+        } else {
+            out.appendToConsole("\nNo active mission. Visit different locations to find missions!");
+        }
+        
+        displayPossibleMoves();
+    }
+
+    private void displayMissions() {
+        List<Mission> missions = data.getMissions();
+        out.appendToConsole("\nMissions:");
+        for (int i = 0; i < missions.size(); i++) {
+            Mission mission = missions.get(i);
+            out.appendToConsole((engine.isMissionActive(i) ? "* " : "  ") + (i + 1) + ". " + mission.getTitle()
+                + " (" + mission.getTargetLocation()
+                + (mission.getTargetEnemy() != null ? ", defeat " + mission.getTargetEnemy() : "")
+                + ", " + mission.getReward() + " points)");
+        }
+        out.appendToConsole("* = active. Use 'accept <number>' to take on more.");
+    }
+
+    private void handleAcceptCommand(CommandLine args) {
+        int index = missionNumber(args, "accept");
+        if (index >= 0 && !engine.acceptMission(index)) {
+            out.appendToConsole("You already carry that mission.");
+        }
+    }
+
+    private void handleDropCommand(CommandLine args) {
+        int index = missionNumber(args, "drop");
+        if (index >= 0 && !engine.dropMission(index)) {
+            out.appendToConsole("That mission is not active.");
+        }
+    }
+
+    // The index in GameData.missions of the number typed after a command,
+    // or -1 after telling the player what was wrong with it.
+    private int missionNumber(CommandLine args, String command) {
+        if (args.size() < 2) {
+            out.appendToConsole("Usage: " + command + " <number>. Type 'missions' for the list.");
+            return -1;
+        }
+        try {
+            int number = Integer.parseInt(args.get(1));
+            if (number >= 1 && number <= data.getMissions().size()) {
+                return number - 1;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        out.appendToConsole("No mission number " + args.get(1) + ". Type 'missions' for the list.");
+        return -1;
+    }
+
+    private void displayHelp() {
+        out.appendToConsole("\nAvailable Commands:");
+        registry.helpLines().forEach(out::appendToConsole);
+
+        out.appendToConsole("\nHow to Complete Missions:");
+        out.appendToConsole("1. For Exploration Missions (no enemy required):");
+        out.appendToConsole("   - Simply reach the target location (e.g., 'move titan')");
+        out.appendToConsole("   - Mission completes automatically on arrival");
+        out.appendToConsole("   - A new mission is assigned immediately");
+        
+        out.appendToConsole("\n2. For Combat Missions (enemy required):");
+        out.appendToConsole("   - Go to the target location (e.g., 'move jupiter')");
+        out.appendToConsole("   - Fight the specific enemy (e.g., 'fight pirate')");
+        out.appendToConsole("   - Use only the enemy's simple name (e.g., 'pirate' not 'space pirate')");
+        out.appendToConsole("   - Mission completes after defeating the right enemy");
+
+        out.appendToConsole("\nWays to Win:");
+        out.appendToConsole("1. Complete 5 missions");
+        out.appendToConsole("2. Reach 1000 points");
+        out.appendToConsole("3. Discover all critical locations:");
+        out.appendToConsole("   - Mars, Jupiter, Titan, Proxima Centauri b, Venus");
+        
+        out.appendToConsole("\nEnergy Costs:");
+        out.appendToConsole("- Moving: 10 energy per jump (some routes cost more)");
+        out.appendToConsole("- Fighting: 15 energy");
+        out.appendToConsole("- Searching: 5 energy");
+        
+        displayPossibleMoves();
+    }
+
+    /** Saves into {@link #SAVE_FILE}. The GUI overrides this to save in the background. */
+    protected void save() {
+        try {
+            engine.saveGame(SAVE_FILE);
+            out.appendToConsole("Game saved successfully!");
+        } catch (IOException e) {
+            error("Error saving game", e);
+        }
+    }
+
+    /**
+     * Loads {@link #SAVE_FILE}. The GUI overrides this to load in the
+     * background, and calls {@link #forgetHistory} once the save is applied.
+     */
+    protected void load() {
+        try {
+            engine.loadGame(SAVE_FILE);
+            forgetHistory();
+            out.appendToConsole("Game loaded successfully!");
+        } catch (Exception e) {
+            error("Error loading game", e);
+        }
+    }
+
+    /** Reports a failed command. */
+    protected void error(String message, Exception e) {
+        out.appendToConsole("ERROR: " + message + ": " + e.getMessage());
+    }
+}
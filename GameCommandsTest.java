@@ -0,0 +1,95 @@
+// File: GameCommandsTest.java
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks that undo and rollback cannot reach back across a load: turns
+ * taken while the save is read in the background, and checkpoints named
+ * before it, are forgotten once the save is applied, and the save on disk
+ * keeps the loaded game. Run from the project directory with
+ * {@code java GameCommandsTest}; exits non-zero on failure.
+ */
+public class GameCommandsTest {
+    private static final String SAVE = "commands-test.dat";
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        GameData world = HeadlessRunner.loadWorld();
+        try {
+            checkUndoAfterLoad(world);
+        } finally {
+            Path file = Paths.get("saves", SAVE);
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(GameJournal.journalFor(file));
+        }
+
+        if (failures > 0) {
+            System.err.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("GameCommandsTest OK");
+        System.exit(0);   // the engines' journal threads are daemons, but be sure
+    }
+
+    // Loads the way the window does: the file is read in the background
+    // while commands keep running, and the save is applied afterwards.
+    private static void checkUndoAfterLoad(GameData world) throws Exception {
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        HeadlessGUI gui = new HeadlessGUI(new PrintStream(console, true, StandardCharsets.UTF_8));
+        GameEngine engine = new GameEngine(world, gui, GameRules.DEFAULT, 3);
+        AtomicReference<CompletableFuture<GameEngine.SaveFile>> reading = new AtomicReference<>();
+        GameCommands commands = new GameCommands(world, engine, gui) {
+            @Override
+            protected void save() {
+                engine.saveGameAsync(SAVE).join();
+            }
+
+            @Override
+            protected void load() {
+                reading.set(engine.readSaveAsync(SAVE));
+            }
+        };
+        engine.startGame("earth");
+
+        commands.execute("move " + engine.getPossibleMoves().iterator().next());
+        commands.execute("checkpoint before");
+        commands.execute("save");
+        commands.execute("move " + engine.getPossibleMoves().iterator().next());   // kept by the journal
+        String saved = engine.getCurrentLocation();
+        commands.execute("load");
+        commands.execute("move " + engine.getPossibleMoves().iterator().next());   // while the file is read
+        engine.applySave(reading.get().join());
+        commands.forgetHistory();
+        check(engine.getCurrentLocation().equals(saved), "the load restores " + saved);
+
+        console.reset();
+        commands.execute("undo");
+        check(console.toString(StandardCharsets.UTF_8).contains("Nothing to undo."),
+            "undo after a load has nothing to take back, got " + console.toString(StandardCharsets.UTF_8));
+        check(engine.getCurrentLocation().equals(saved), "undo leaves the loaded game alone");
+        commands.execute("rollback before");
+        check(console.toString(StandardCharsets.UTF_8).contains("No checkpoint named before"),
+            "checkpoints from before the load are forgotten");
+
+        engine.closeJournal();
+        GameEngine reloaded = new GameEngine(world, new HeadlessGUI(null), GameRules.DEFAULT, 4);
+        reloaded.startGame("earth");
+        reloaded.loadGame(SAVE);
+        reloaded.closeJournal();
+        check(reloaded.getCurrentLocation().equals(saved), "the save on disk still holds the loaded game");
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + what);
+        }
+    }
+}
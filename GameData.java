@@ -1,90 +1,235 @@
 import java.util.*;
 import java.io.*;
+import java.nio.ByteBuffer;
 
 public class GameData implements Serializable {
     private static final long serialVersionUID = 1L;
+    // For getRandomMission() without a source; GameRandom is not thread-safe.
+    private static final ThreadLocal<GameRandom> UNSEEDED =
+        ThreadLocal.withInitial(() -> new GameRandom(GameRandom.freshSeed()));
     Map<String, Location> locations;
-    Map<String, Set<String>> connections;
+    LocationIds locationIds;
+    ConnectionGraph connections;
+    transient PropertyIndex propertyIndex;
+    transient int[] enemyOffsets;
+    transient WorldImage image;
+    transient EnemyStore enemies;   // the enemies of every location
     List<Mission> missions; 
 
     public GameData() {
         locations = new HashMap<>();
-        connections = new HashMap<>();
+        locationIds = new LocationIds();
+        connections = ConnectionGraph.empty(0);
+        propertyIndex = new PropertyIndex();
         missions = new ArrayList<>();
         createMissions(); 
     }
 
+    /**
+     * Creates game data over a world opened by {@link WorldImage#open}. The
+     * locations map and property index are filled in by the image.
+     */
+    GameData(LocationIds locationIds, ConnectionGraph connections, List<Mission> missions) {
+        this.locationIds = locationIds;
+        this.connections = connections;
+        this.missions = missions;
+    }
+
+    /**
+     * Returns the property index, building it on first use when the world
+     * came from an image or a saved game.
+     */
+    PropertyIndex getPropertyIndex() {
+        if (propertyIndex == null && image != null) {
+            propertyIndex = image.buildPropertyIndex(this);
+        }
+        if (propertyIndex == null) {
+            propertyIndex = new PropertyIndex();
+            for (Location location : locations.values()) {
+                location.attachIndex(propertyIndex, locationIds.idOf(location.getName()));
+            }
+        }
+        return propertyIndex;
+    }
+
+    /**
+     * The store that holds the enemies of every location of this world,
+     * with one blueprint per enemy type.
+     */
+    EnemyStore getEnemyStore() {
+        if (enemies == null) {
+            enemies = new EnemyStore();
+        }
+        return enemies;
+    }
+
+    /**
+     * Returns where each location's enemies start when the enemies of all
+     * locations are numbered in one run, by location id; the last entry is
+     * the total. Built on first use, so only once the world is loaded.
+     */
+    int[] getEnemyOffsets() {
+        if (enemyOffsets == null && image != null) {
+            enemyOffsets = image.enemyOffsets(this);
+        }
+        if (enemyOffsets == null) {
+            int[] offsets = new int[locationIds.size() + 1];
+            for (int id = 0; id < locationIds.size(); id++) {
+                Location location = locations.get(locationIds.nameOf(id));
+                offsets[id + 1] = offsets[id] + (location != null ? location.getEnemyCount() : 0);
+            }
+            enemyOffsets = offsets;
+        }
+        return enemyOffsets;
+    }
+
+    /**
+     * Finishes every part of the world that is built on first use, so games
+     * on several threads can share it without locking. Play never changes
+     * a world; each game keeps its changes in its own WorldState.
+     *
+     * @return This world.
+     */
+    public GameData share() {
+        getPropertyIndex();
+        getEnemyOffsets();
+        for (int id = 0; id < locationIds.size(); id++) {
+            locations.get(locationIds.nameOf(id));
+        }
+        return this;
+    }
+
     public void loadLocations(String filename) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String locationName = line.trim().toLowerCase();
-                Location location = new Location(locationName);
-                
-                line = reader.readLine();
-                if (line != null) {
-                    location.setDescription(line.trim());
-                }
-                
+        GameMetrics.Timer timer = GameMetrics.global().timeLoad("load locations", filename);
+        try {
+            resolveLocations(WorldFileParser.parseFile(filename, true, WorldFileParser::parseLocations));
+        } finally {
+            timer.close();
+        }
+    }
+
+    public void loadConnections(String filename) throws IOException {
+        LoadReport report = new LoadReport();
+        GameMetrics.Timer timer = GameMetrics.global().timeLoad("load connections", filename);
+        try {
+            resolveConnections(WorldFileParser.parseFile(filename, false, WorldFileParser::parseConnections), report);
+        } finally {
+            timer.close();
+        }
+        report.printTo(System.err);
+    }
+
+    public void loadProperties(String filename) throws IOException {
+        LoadReport report = new LoadReport();
+        GameMetrics.Timer timer = GameMetrics.global().timeLoad("load properties", filename);
+        try {
+            resolveProperties(WorldFileParser.parseFile(filename, false, WorldFileParser::parseProperties), report);
+        } finally {
+            timer.close();
+        }
+        report.printTo(System.err);
+    }
+
+    public void loadEnemies(String filename) throws IOException {
+        LoadReport report = new LoadReport();
+        GameMetrics.Timer timer = GameMetrics.global().timeLoad("load enemies", filename);
+        try {
+            resolveEnemies(WorldFileParser.parseFile(filename, false, WorldFileParser::parseEnemies), report);
+        } finally {
+            timer.close();
+        }
+        report.printTo(System.err);
+    }
+
+    void resolveLocations(List<WorldFileParser.LocationRecords> chunks) {
+        for (WorldFileParser.LocationRecords records : chunks) {
+            IntList names = records.names;
+            for (int i = 0, r = 0; i < names.size(); i += 2, r++) {
+                int id = locationIds.intern(records.buffer, names.get(i), names.get(i + 1));
+                String locationName = locationIds.nameOf(id);
+                Location location = new Location(locationName, getEnemyStore(), id);
+                location.setDescription(records.descriptions.get(r));
+                location.attachIndex(propertyIndex, id);
                 locations.put(locationName, location);
             }
         }
     }
 
-    public void loadConnections(String filename) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String locationName = line.trim().toLowerCase();
-                if (!locations.containsKey(locationName)) {
-                    System.err.println("Location " + locationName + " not found. Skipping.");
+    void resolveConnections(List<WorldFileParser.ConnectionRecords> chunks, LoadReport report) {
+        ConnectionGraph.Builder builder = new ConnectionGraph.Builder(connections);
+        for (WorldFileParser.ConnectionRecords records : chunks) {
+            report.addErrors(records.errors);
+            IntList sources = records.sources;
+            IntList edges = records.edges;
+            int edge = 0;
+            for (int i = 0; i < sources.size(); i += 3) {
+                int edgeCount = sources.get(i + 2);
+                Location location = resolve(records.buffer, sources.get(i), sources.get(i + 1));
+                if (location == null) {
+                    report.danglingReference("connections", decodeName(records.buffer, sources.get(i), sources.get(i + 1)));
+                    edge += edgeCount * 3;
                     continue;
                 }
-                
-                String countLine = reader.readLine();
-                if (countLine != null) {
-                    try {
-                        int connectionCount = Integer.parseInt(countLine.trim());
-                        Set<String> connectedLocations = new HashSet<>();
-                        
-                        for (int i = 0; i < connectionCount; i++) {
-                            String connected = reader.readLine().trim().toLowerCase();
-                            connectedLocations.add(connected);
-                        }
-                        
-                        connections.put(locationName, connectedLocations);
-                        reader.readLine(); 
-                    } catch (NumberFormatException e) {
-                        System.err.println("Invalid connection count for " + locationName);
+                int from = locationIds.idOf(location.getName());
+                for (int k = 0; k < edgeCount; k++, edge += 3) {
+                    Location target = resolve(records.buffer, edges.get(edge), edges.get(edge + 1));
+                    if (target == null) {
+                        report.danglingReference("connections",
+                            decodeName(records.buffer, edges.get(edge), edges.get(edge + 1)));
+                        continue;
                     }
+                    builder.addEdge(from, locationIds.idOf(target.getName()), edges.get(edge + 2));
                 }
             }
         }
+        connections = builder.build(locationIds.size());
     }
 
-    public void loadEnemies(String filename) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String locationName = line.trim().toLowerCase();
-                if (locationName.isEmpty()) continue;
-                
-                if (!locations.containsKey(locationName)) {
-                    System.err.println("Location " + locationName + " not found for enemy");
+    void resolveEnemies(List<WorldFileParser.EnemyRecords> chunks, LoadReport report) {
+        for (WorldFileParser.EnemyRecords records : chunks) {
+            report.addErrors(records.errors);
+            IntList refs = records.locations;
+            for (int i = 0, r = 0; i < refs.size(); i += 2, r++) {
+                Location location = resolve(records.buffer, refs.get(i), refs.get(i + 1));
+                if (location == null) {
+                    report.danglingReference("enemies", decodeName(records.buffer, refs.get(i), refs.get(i + 1)));
+                    continue;
+                }
+                location.addEnemy(records.names.get(r), records.stats.get(2 * r), records.stats.get(2 * r + 1));
+            }
+        }
+    }
+
+    void resolveProperties(List<WorldFileParser.PropertyRecords> chunks, LoadReport report) {
+        for (WorldFileParser.PropertyRecords records : chunks) {
+            report.addErrors(records.errors);
+            IntList refs = records.locations;
+            int property = 0;
+            for (int i = 0; i < refs.size(); i += 3) {
+                int count = refs.get(i + 2);
+                Location location = resolve(records.buffer, refs.get(i), refs.get(i + 1));
+                if (location == null) {
+                    report.danglingReference("properties", decodeName(records.buffer, refs.get(i), refs.get(i + 1)));
+                    property += count;
                     continue;
                 }
-                
-                Location location = locations.get(locationName);
-                String enemyName = reader.readLine().trim();
-                int health = Integer.parseInt(reader.readLine().trim());
-                int attackPower = Integer.parseInt(reader.readLine().trim());
-                
-                Enemy enemy = new Enemy(enemyName, health, attackPower);
-                location.addEnemy(enemy);
+                for (int k = 0; k < count; k++, property++) {
+                    location.addProperty(records.keys.get(property), records.values.get(property));
+                }
             }
         }
     }
 
+    // Looks a location up by a name held as raw bytes.
+    private Location resolve(ByteBuffer buffer, int start, int end) {
+        int id = locationIds.idOf(buffer, start, end);
+        return id >= 0 ? locations.get(locationIds.nameOf(id)) : null;
+    }
+
+    private static String decodeName(ByteBuffer buffer, int start, int end) {
+        return new MappedTextScanner(buffer).decode(start, end).toLowerCase();
+    }
+
     private void createMissions() {
         
         missions.add(new Mission("Space Pirate Hunt", "jupiter", "Pirate", 
@@ -111,14 +256,26 @@ public class GameData implements Serializable {
             "Assess the Raider's damage to Saturn's rings.", 325));
     }
 
+    /**
+     * Picks a mission with a generator kept per thread, for callers that
+     * need no repeatable games; engines use their own mission stream.
+     */
     public Mission getRandomMission() {
+        return getRandomMission(UNSEEDED.get());
+    }
+
+    /**
+     * Picks a mission with the given random source, so seeded games pick
+     * the same missions. The missions are never refilled here: games share
+     * this world, and it does not change during play.
+     *
+     * @return The mission, or null if the world has none.
+     */
+    public Mission getRandomMission(GameRandom random) {
         if (missions.isEmpty()) {
-            createMissions();
-        }
-        if (!missions.isEmpty()) {
-            return missions.get(new Random().nextInt(missions.size()));
+            return null;
         }
-        return null;
+        return missions.get(random.nextInt(missions.size()));
     }
     
     public List<Mission> getMissions() {
@@ -1,51 +1,104 @@
 import java.util.*;
 import java.io.*;
-import javax.swing.JOptionPane;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class GameEngine {
 
     private final GameData gameData;
-    private final GameGUI gameGUI;
+    private GameGUI gameGUI;
     private String currentLocation;
     private int energy;
     private int score;
-    private Mission currentMission;
-    private Set<String> visitedLocations;
-    private Random random;
+    private final MissionTracker missions;
+    private PersistentIntArray visited = PersistentIntArray.EMPTY;   // bit words by location id
+    private long seed;
+    private final GameRandom[] streams = new GameRandom[STREAM_COUNT];
+    private final GraphTraversal traversal = new GraphTraversal();
+    private final BitSet reachable = new BitSet();
+    private ConnectionGraph reachableGraph;
+    private int reachableSource = -1;
+    private final RoutePlanner routePlanner = new RoutePlanner();
+    private final CombatResolver combat = new CombatResolver();
+    private CombatResolver.Verbosity combatLog = CombatResolver.Verbosity.SUMMARY;
+    private final WorldState world;
+    private final List<GameEventListener> listeners = new ArrayList<>();
+    private GameJournal journal;
+    private GameMetrics metrics = GameMetrics.global();
     
    
-    private static final int INITIAL_ENERGY = 100;
-    private static final int MOVE_ENERGY_COST = 10;
-    private static final int COMBAT_ENERGY_COST = 15;
-    private static final int SEARCH_ENERGY_COST = 5;
+    private final GameRules rules;
+    private final int initialEnergy;
+    private final int combatEnergyCost;
+    private final int searchEnergyCost;
+    private final int defeatScore;
+    /** Random streams of an engine; later systems get the next numbers. */
+    static final int COMBAT_STREAM = 0;
+    static final int MISSION_STREAM = 1;
+    static final int STREAM_COUNT = 2;
     private static final String SAVE_DIR = "saves/";
+    private static final String AUTOSAVE_FILE = "autosave.dat";
     
    
-    private static final int MISSIONS_REQUIRED_FOR_WIN = 5;
-    private static final int SCORE_REQUIRED_FOR_WIN = 1000;
+    private final int missionsRequiredForWin;
+    private final int scoreRequiredForWin;
     private static final Set<String> CRITICAL_LOCATIONS = new HashSet<>(Arrays.asList(
         "mars", "jupiter", "titan", "proxima_centauri_b", "venus"
     ));
     private int completedMissions = 0;
-    private Set<String> discoveredCriticalLocations;
+    private boolean finished;   // won, or out of energy
+    private boolean won;
 
     public GameEngine(GameData gameData, GameGUI gameGUI) {
+        this(gameData, gameGUI, GameRules.DEFAULT, GameRandom.freshSeed());
+    }
+
+    /**
+     * @param rules The balance numbers to play by.
+     * @param seed Seeds every random choice, so a game can be replayed.
+     */
+    public GameEngine(GameData gameData, GameGUI gameGUI, GameRules rules, long seed) {
         this.gameData = gameData;
         this.gameGUI = gameGUI;
-        this.energy = INITIAL_ENERGY;
+        this.world = new WorldState(gameData);
+        this.missions = new MissionTracker(gameData);
+        this.rules = rules;
+        this.initialEnergy = rules.get(GameRules.Rule.INITIAL_ENERGY);
+        this.combatEnergyCost = rules.get(GameRules.Rule.COMBAT_ENERGY_COST);
+        this.searchEnergyCost = rules.get(GameRules.Rule.SEARCH_ENERGY_COST);
+        this.defeatScore = rules.get(GameRules.Rule.DEFEAT_SCORE);
+        this.missionsRequiredForWin = rules.get(GameRules.Rule.MISSIONS_TO_WIN);
+        this.scoreRequiredForWin = rules.get(GameRules.Rule.SCORE_TO_WIN);
+        this.energy = initialEnergy;
         this.score = 0;
-        this.visitedLocations = new HashSet<>();
-        this.discoveredCriticalLocations = new HashSet<>();
-        this.random = new Random();
+        reseed(seed);
+    }
+
+    /**
+     * Reseeds the random choices; with {@link #restartGame} this replays a
+     * game exactly. Each system draws from its own stream of the seed, so
+     * adding draws to one system leaves the others' numbers unchanged.
+     */
+    void reseed(long seed) {
+        this.seed = seed;
+        for (int i = 0; i < STREAM_COUNT; i++) {
+            streams[i] = GameRandom.stream(seed, i);
+        }
     }
 
+    /** The seed the game's random streams started from. */
+    public long getSeed() { return seed; }
+
     public void startGame(String startLocation) {
         currentLocation = startLocation.toLowerCase();
-        visitedLocations.add(currentLocation);
+        markVisited(currentLocation);
         Location location = gameData.locations.get(currentLocation);
 
         if (location != null) {
-            location.setVisited(true);
             gameGUI.updateLocation(location.getName());
             gameGUI.appendToConsole("Starting exploration at " + location.getName());
             gameGUI.appendToConsole(location.getDescription());
@@ -56,41 +109,97 @@ public class GameEngine {
         gameGUI.updateEnergyBar(energy);
     }
 
+    // Hands out a random mission once the player has none left.
     private void generateMission() {
-        if (currentMission == null) {
-            currentMission = gameData.getRandomMission();
-            if (currentMission != null) {
-                gameGUI.updateMission("Current Mission: " + currentMission.getTitle());
-                gameGUI.appendToConsole("\nNew Mission Acquired!\n" + currentMission.toString());
+        if (missions.isEmpty()) {
+            Mission mission = gameData.getRandomMission(streams[MISSION_STREAM]);
+            fireRandomAdvanced(MISSION_STREAM);
+            if (mission != null) {
+                acceptMission(gameData.missions.indexOf(mission));
             }
         }
     }
 
+    /**
+     * Takes on a mission alongside those already active. Any number can be
+     * active at once; each completes on its own and pays its own reward.
+     *
+     * @param missionIndex The index in GameData.missions.
+     * @return false if the mission is already active or does not exist.
+     */
+    public boolean acceptMission(int missionIndex) {
+        if (!missions.add(missionIndex)) {
+            return false;
+        }
+        fireMissionAccepted(missionIndex);
+        gameGUI.updateMission(missionText());
+        gameGUI.appendToConsole("\nNew Mission Acquired!\n" + gameData.missions.get(missionIndex).toString());
+        return true;
+    }
+
+    /**
+     * Gives up an active mission without its reward.
+     *
+     * @return false if the mission was not active.
+     */
+    public boolean dropMission(int missionIndex) {
+        if (!missions.remove(missionIndex)) {
+            return false;
+        }
+        fireMissionEnded(missionIndex);
+        gameGUI.updateMission(missionText());
+        gameGUI.appendToConsole("Mission dropped: " + gameData.missions.get(missionIndex).getTitle());
+        return true;
+    }
+
+    private String missionText() {
+        Mission first = missions.first();
+        if (first == null) {
+            return "Current Mission: None";
+        }
+        int others = missions.size() - 1;
+        return "Current Mission: " + first.getTitle() + (others > 0 ? " (+" + others + " more)" : "");
+    }
+
     public boolean moveTo(String destination) {
+        GameMetrics.Timer timer = metrics.time("moveTo", currentLocation);
+        try {
+            return travel(destination);
+        } finally {
+            timer.close();
+        }
+    }
+
+    private boolean travel(String destination) {
         destination = destination.toLowerCase();
-        Set<String> possibleMoves = getPossibleMoves();
+        int from = gameData.locationIds.idOf(currentLocation);
+        int to = gameData.locationIds.idOf(destination);
+        int edge = gameData.connections.edgeTo(from, to);
         
-        if (!possibleMoves.contains(destination)) {
+        if (edge < 0) {
             gameGUI.appendToConsole("Cannot move to " + destination + " from current location.");
             return false;
         }
 
-        if (energy < MOVE_ENERGY_COST) {
+        int moveCost = rules.scale(GameRules.Rule.MOVE_COST_PERCENT, gameData.connections.cost(edge));
+        if (energy < moveCost) {
             gameGUI.appendToConsole("Insufficient energy for movement!");
             return false;
         }
 
+        boolean firstVisit = !isVisited(destination);
         currentLocation = destination;
-        energy -= MOVE_ENERGY_COST;
-        visitedLocations.add(destination);
-        gameData.locations.get(destination).setVisited(true);
+        energy -= moveCost;
+        markVisited(destination);
+        for (GameEventListener listener : listeners) {
+            listener.locationEntered(to, energy);
+        }
         
         
         if (CRITICAL_LOCATIONS.contains(destination)) {
-            if (!discoveredCriticalLocations.contains(destination)) {
-                discoveredCriticalLocations.add(destination);
+            if (firstVisit) {
                 gameGUI.appendToConsole("\n🌟 You've discovered a critical location: " + destination + "!");
-                if (discoveredCriticalLocations.size() == CRITICAL_LOCATIONS.size()) {
+                if (discoveredCriticalCount() == CRITICAL_LOCATIONS.size()) {
                     gameGUI.appendToConsole("\n📍 You've discovered all critical locations in the galaxy!");
                 }
             }
@@ -105,9 +214,12 @@ public class GameEngine {
     }
 
     private void checkVictoryConditions() {
-        boolean hasEnoughMissions = completedMissions >= MISSIONS_REQUIRED_FOR_WIN;
-        boolean hasEnoughScore = score >= SCORE_REQUIRED_FOR_WIN;
-        boolean hasDiscoveredAllCritical = discoveredCriticalLocations.containsAll(CRITICAL_LOCATIONS);
+        if (finished) {
+            return;
+        }
+        boolean hasEnoughMissions = completedMissions >= missionsRequiredForWin;
+        boolean hasEnoughScore = score >= scoreRequiredForWin;
+        boolean hasDiscoveredAllCritical = discoveredCriticalCount() == CRITICAL_LOCATIONS.size();
         
         if (hasEnoughMissions || hasEnoughScore || hasDiscoveredAllCritical) {
             triggerVictory(hasEnoughMissions, hasEnoughScore, hasDiscoveredAllCritical);
@@ -115,16 +227,18 @@ public class GameEngine {
     }
 
     private void triggerVictory(boolean missions, boolean score, boolean exploration) {
+        finished = true;
+        won = true;
         StringBuilder victoryMessage = new StringBuilder("\n🎉 CONGRATULATIONS! You've won the game! 🎉\n\n");
         victoryMessage.append("Victory achieved through:\n");
         
         if (missions) {
             victoryMessage.append("- Completing ").append(completedMissions)
-                         .append(" missions (required: ").append(MISSIONS_REQUIRED_FOR_WIN).append(")\n");
+                         .append(" missions (required: ").append(missionsRequiredForWin).append(")\n");
         }
         if (score) {
             victoryMessage.append("- Achieving a score of ").append(this.score)
-                         .append(" (required: ").append(SCORE_REQUIRED_FOR_WIN).append(")\n");
+                         .append(" (required: ").append(scoreRequiredForWin).append(")\n");
         }
         if (exploration) {
             victoryMessage.append("- Discovering all critical locations in the galaxy\n");
@@ -133,78 +247,131 @@ public class GameEngine {
         victoryMessage.append("\nFinal Statistics:\n")
                      .append("- Total Score: ").append(this.score).append("\n")
                      .append("- Missions Completed: ").append(completedMissions).append("\n")
-                     .append("- Locations Discovered: ").append(visitedLocations.size()).append("\n")
+                     .append("- Locations Discovered: ").append(visitedIds().cardinality()).append("\n")
                      .append("- Energy Remaining: ").append(energy).append("\n");
                      
         gameGUI.appendToConsole(victoryMessage.toString());
-        
-        int choice = JOptionPane.showConfirmDialog(null,
-            "Congratulations! You've won the game!\nWould you like to start a new game?",
-            "Victory!",
-            JOptionPane.YES_NO_OPTION);
-            
-        if (choice == JOptionPane.YES_OPTION) {
-            restartGame();
-        } else {
-            System.exit(0);
-        }
+        gameGUI.victory();
     }
 
+    /**
+     * Fights an enemy at the current location to the end.
+     *
+     * @param enemy One of the enemies returned by {@link #getEnemiesHere}.
+     */
     public void initiateCombat(Enemy enemy) {
-        if (energy < COMBAT_ENERGY_COST) {
+        GameMetrics.Timer timer = metrics.time("initiateCombat", currentLocation);
+        try {
+            fight(enemy);
+        } finally {
+            timer.close();
+        }
+    }
+
+    private void fight(Enemy enemy) {
+        if (energy < combatEnergyCost) {
             gameGUI.appendToConsole("Insufficient energy for combat!");
             return;
         }
+        int locationId = gameData.locationIds.idOf(currentLocation);
+        int startHealth = world.health(locationId, enemy.getId());
+        if (startHealth == SaveCodec.REMOVED) {
+            gameGUI.appendToConsole("No such enemy here: " + enemy.getName());
+            return;
+        }
 
-        gameGUI.appendToConsole("Engaging in combat with " + enemy.getName());
-        
-        while (!enemy.isDefeated() && energy >= COMBAT_ENERGY_COST) {
-           
-            int playerDamage = calculatePlayerDamage();
-            enemy.takeDamage(playerDamage);
-            gameGUI.appendToConsole("You deal " + playerDamage + " damage to " + enemy.getName());
-            
-            
-            if (!enemy.isDefeated()) {
-                int enemyDamage = calculateEnemyDamage(enemy);
-                energy -= enemyDamage;
-                gameGUI.appendToConsole(enemy.getName() + " deals " + enemyDamage + " damage");
-                gameGUI.updateEnergyBar(energy);
-            }
-            
-            gameGUI.appendToConsole(String.format(
-                "Status - Enemy Health: %d%%, Your Energy: %d",
-                enemy.getHealthPercentage(), 
-                energy
-            ));
+        // The enemy passed in may be stale or a template, so only its
+        // blueprint is used; the health comes from this game.
+        int attack = rules.scale(GameRules.Rule.ENEMY_ATTACK_PERCENT, enemy.getAttackPower());
+        energy = combat.resolve(startHealth, attack, energy, combatEnergyCost, streams[COMBAT_STREAM],
+            combatLog == CombatResolver.Verbosity.VERBOSE);
+        int remaining = Math.max(0, startHealth - combat.getDamageDealt());
+        int health = remaining == 0 ? SaveCodec.REMOVED : remaining;
+        world.setHealth(locationId, enemy.getId(), health);
+        if (combatLog != CombatResolver.Verbosity.QUIET) {
+            reportCombat(enemy, startHealth, remaining);
         }
+        gameGUI.updateEnergyBar(energy);
 
-        if (enemy.isDefeated()) {
+        for (GameEventListener listener : listeners) {
+            listener.randomAdvanced(COMBAT_STREAM, streams[COMBAT_STREAM].getState());
+            listener.energyChanged(energy);
+            listener.enemyChanged(locationId, enemy.getId(), health);
+            listener.combatEnded(locationId, enemy.getId(), combat.getRounds(),
+                combat.getDamageDealt(), combat.getDamageTaken());
+        }
+
+        if (remaining == 0) {
             handleCombatVictory(enemy);
         } else {
             handleCombatDefeat();
         }
     }
 
-    private int calculatePlayerDamage() {
-        int baseDamage = 15 + random.nextInt(10);
-        boolean criticalHit = random.nextDouble() < 0.2; // 20% chance
-        return criticalHit ? baseDamage * 2 : baseDamage;
+    // Writes the fight just resolved to the console, round by round when
+    // the combat log is verbose.
+    private void reportCombat(Enemy enemy, int startHealth, int remaining) {
+        String name = enemy.getName();
+        gameGUI.appendToConsole("Engaging in combat with " + name);
+        if (combatLog == CombatResolver.Verbosity.VERBOSE) {
+            StringBuilder rounds = new StringBuilder();
+            int health = startHealth;
+            for (int r = 0; r < combat.getRounds(); r++) {
+                int dealt = combat.dealtInRound(r);
+                health = Math.max(0, health - dealt);
+                rounds.append("You deal ").append(dealt).append(" damage to ").append(name).append('\n');
+                if (combat.takenInRound(r) > 0) {
+                    rounds.append(name).append(" deals ").append(combat.takenInRound(r)).append(" damage\n");
+                }
+                rounds.append("Status - Enemy Health: ").append((int) (health * 100.0f / enemy.getMaxHealth()))
+                      .append("%, Your Energy: ").append(combat.energyAfterRound(r));
+                if (r + 1 < combat.getRounds()) {
+                    rounds.append('\n');
+                }
+            }
+            if (rounds.length() > 0) {
+                gameGUI.appendToConsole(rounds.toString());
+            }
+        } else {
+            gameGUI.appendToConsole(name + ": " + combat.getRounds() + " round(s), you dealt "
+                + combat.getDamageDealt() + " damage and took " + combat.getDamageTaken()
+                + ". Enemy Health: " + (int) (remaining * 100.0f / enemy.getMaxHealth()) + "%, Your Energy: " + energy);
+        }
+    }
+
+    /**
+     * Sets how much of each fight is written to the console.
+     */
+    public void setCombatLog(CombatResolver.Verbosity verbosity) {
+        combatLog = verbosity;
     }
 
-    private int calculateEnemyDamage(Enemy enemy) {
-        return Math.max(5, enemy.getAttackPower() + random.nextInt(10) - 5);
+    public CombatResolver.Verbosity getCombatLog() { return combatLog; }
+
+    /**
+     * Sets where the engine's operations are timed; {@link GameMetrics#NONE}
+     * turns timing off.
+     */
+    public void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics;
     }
 
+    public GameMetrics getMetrics() { return metrics; }
+
     private void handleCombatVictory(Enemy enemy) {
-        gameGUI.appendToConsole("Victory! " + enemy.getName() + " has been defeated!");
-        score += 100;
+        if (combatLog != CombatResolver.Verbosity.QUIET) {
+            gameGUI.appendToConsole("Victory! " + enemy.getName() + " has been defeated!");
+        }
+        score += defeatScore;
+        fireScoreChanged();
         gameGUI.updateScore(score);
-        gameData.locations.get(currentLocation).removeEnemy(enemy);
         
-        // Check if this combat completes a mission
-        if (currentMission != null && currentMission.isComplete(currentLocation, enemy)) {
-            completeMission();
+        // Check if this combat completes any missions
+        int[] done = missions.completedByDefeat(gameData.locationIds.idOf(currentLocation), enemy.getName());
+        if (done.length > 0) {
+            for (int missionIndex : done) {
+                completeMission(missionIndex);
+            }
             generateMission();
             displayGameStatus();
         }
@@ -213,28 +380,34 @@ public class GameEngine {
     }
 
     private void handleCombatDefeat() {
-        gameGUI.appendToConsole("Combat failed - insufficient energy!");
+        if (combatLog != CombatResolver.Verbosity.QUIET) {
+            gameGUI.appendToConsole("Combat failed - insufficient energy!");
+        }
         if (energy <= 0) {
+            finished = true;
             gameGUI.gameOver();
         }
     }
 
-    private void completeMission() {
-        if (currentMission != null) {
-            score += currentMission.getReward();
+    private void completeMission(int missionIndex) {
+        if (missions.remove(missionIndex)) {
+            Mission mission = gameData.missions.get(missionIndex);
+            int reward = rules.scale(GameRules.Rule.MISSION_REWARD_PERCENT, mission.getReward());
+            score += reward;
             completedMissions++;
+            fireScoreChanged();
             gameGUI.appendToConsole(String.format(
                 "\n🎉 Mission Complete: %s\nReward: %d points\nTotal Missions Completed: %d/%d",
-                currentMission.getTitle(),
-                currentMission.getReward(),
+                mission.getTitle(),
+                reward,
                 completedMissions,
-                MISSIONS_REQUIRED_FOR_WIN
+                missionsRequiredForWin
             ));
             
             
             gameGUI.updateScore(score);
-            currentMission = null;
-            gameGUI.updateMission("Current Mission: None");
+            fireMissionEnded(missionIndex);
+            gameGUI.updateMission(missionText());
             
             checkVictoryConditions();
         }
@@ -245,112 +418,658 @@ public class GameEngine {
         gameGUI.appendToConsole("\nArrived at " + location.getName());
         gameGUI.appendToConsole(location.getDescription());
         
-        if (location.hasEnemies()) {
+        List<Enemy> enemies = getEnemiesHere();
+        if (!enemies.isEmpty()) {
             gameGUI.appendToConsole("\nWarning: Enemies detected!");
-            location.getEnemies().forEach(enemy -> 
+            enemies.forEach(enemy -> 
                 gameGUI.appendToConsole("- " + enemy.toString())
             );
         }
 
         
-        if (currentMission != null && 
-            currentMission.getTargetLocation().equalsIgnoreCase(currentLocation) && 
-            currentMission.getTargetEnemy() == null) {
+        int[] done = missions.completedByArrival(gameData.locationIds.idOf(currentLocation));
+        if (done.length > 0) {
             gameGUI.appendToConsole("🎯 You've reached the mission target location!");
-            completeMission();
+            for (int missionIndex : done) {
+                completeMission(missionIndex);
+            }
             generateMission();
             displayGameStatus();
         }
     }
 
     private void displayGameStatus() {
-        if (currentMission != null) {
+        if (!missions.isEmpty()) {
             gameGUI.appendToConsole("\nCurrent Mission Status:");
-            gameGUI.appendToConsole(currentMission.toString());
+            for (int missionIndex : missions.getActive()) {
+                gameGUI.appendToConsole(gameData.missions.get(missionIndex).toString());
+            }
         }
     }
 
     public List<String> searchLocationsDFS(String propertyKey, String propertyValue) {
-        if (energy < SEARCH_ENERGY_COST) {
+        GameMetrics.Timer timer = metrics.time("searchLocationsDFS", currentLocation);
+        try {
+            return search(propertyKey, propertyValue);
+        } finally {
+            timer.close();
+        }
+    }
+
+    private List<String> search(String propertyKey, String propertyValue) {
+        if (energy < searchEnergyCost) {
             gameGUI.appendToConsole("Insufficient energy for search operation!");
             return null;
         }
 
-        Set<String> visited = new HashSet<>();
+        BitSet reachable = reachableFrom(gameData.locationIds.idOf(currentLocation));
+        IntList matches = gameData.getPropertyIndex().lookup(propertyKey, propertyValue);
         List<String> foundLocations = new ArrayList<>();
-        dfsSearch(currentLocation, propertyKey, propertyValue, visited, foundLocations);
+        for (int i = 0; i < matches.size(); i++) {
+            int node = matches.get(i);
+            if (reachable.get(node)) {
+                foundLocations.add(gameData.locationIds.nameOf(node));
+            }
+        }
         
-        energy -= SEARCH_ENERGY_COST;
+        energy -= searchEnergyCost;
+        for (GameEventListener listener : listeners) {
+            listener.energyChanged(energy);
+        }
         gameGUI.updateEnergyBar(energy);
         return foundLocations;
     }
 
-    private void dfsSearch(String location, String propertyKey, String propertyValue, 
-                         Set<String> visited, List<String> results) {
-        visited.add(location);
-        
-        Location loc = gameData.locations.get(location);
-        if (loc != null && propertyValue.equals(loc.getProperty(propertyKey))) {
-            results.add(location);
+    /**
+     * Plans the cheapest route by energy from the current location.
+     *
+     * @param destination The name of the destination.
+     * @return The route, or null if the destination is unknown or unreachable.
+     */
+    public Route planRoute(String destination) {
+        int source = gameData.locationIds.idOf(currentLocation);
+        int target = gameData.locationIds.idOf(destination.toLowerCase());
+        IntList path = new IntList();
+        int cost = routePlanner.findRoute(gameData.connections, source, target, path);
+        if (cost == RoutePlanner.UNREACHABLE) {
+            return null;
         }
-        
-        Set<String> neighbors = gameData.connections.getOrDefault(location, new HashSet<>());
-        for (String neighbor : neighbors) {
-            if (!visited.contains(neighbor)) {
-                dfsSearch(neighbor, propertyKey, propertyValue, visited, results);
-            }
+        List<String> stops = new ArrayList<>(path.size());
+        for (int i = 0; i < path.size(); i++) {
+            stops.add(gameData.locationIds.nameOf(path.get(i)));
         }
+        return new Route(stops, rules.scale(GameRules.Rule.MOVE_COST_PERCENT, cost), energy);
     }
 
+    /**
+     * Returns the set of location ids reachable from {@code source}. The last
+     * answer is cached together with the graph it was computed on and the
+     * source's strongly connected component: every node of a component
+     * reaches the same set, so moving within one reuses the cache, and
+     * otherwise the graph is walked once.
+     */
+    private BitSet reachableFrom(int source) {
+        ConnectionGraph graph = gameData.connections;
+        if (reachableGraph == graph && source >= 0
+                && graph.component(source) == graph.component(reachableSource)) {
+            reachableSource = source;
+            return reachable;
+        }
+
+        traversal.traverse(graph, source, GraphTraversal.Mode.DFS, GraphTraversal.NO_LIMIT,
+            (node, depth) -> true);
+        reachable.clear();
+        reachable.or(traversal.visited());
+        reachableGraph = graph;
+        reachableSource = source;
+        return reachable;
+    }
+
+    /**
+     * Saves the game and starts journaling into the save, so every later
+     * change is kept without saving again. Blocks until the save is on disk.
+     */
     public void saveGame(String filename) throws IOException {
-        File saveDir = new File(SAVE_DIR);
-        if (!saveDir.exists()) {
-            saveDir.mkdirs();
-        }
-
-        try (ObjectOutputStream out = new ObjectOutputStream(
-                new FileOutputStream(SAVE_DIR + filename))) {
-            GameState state = new GameState(
-                currentLocation,
-                energy,
-                score,
-                currentMission,
-                visitedLocations,
-                gameData.locations
-            );
-            out.writeObject(state);
+        try {
+            saveGameAsync(filename).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof UncheckedIOException
+                ? ((UncheckedIOException) e.getCause()).getCause()
+                : new IOException(e.getCause());
         }
     }
 
+    /**
+     * Takes a snapshot of the game on the calling thread and writes it in
+     * the background. Must be called from the thread that drives the engine.
+     *
+     * @return Completes once the save is on disk.
+     */
+    public CompletableFuture<Void> saveGameAsync(String filename) {
+        GameMetrics.Timer timer = metrics.time("saveGame", currentLocation);
+        Path file = Paths.get(SAVE_DIR, filename);
+        try {
+            Files.createDirectories(file.getParent());
+            if (journal == null || !journal.getSnapshotFile().equals(file)) {
+                closeJournalAsync();
+                journal = GameJournal.startFresh(file, this::snapshot);
+                listeners.add(journal);
+            }
+        } catch (IOException e) {
+            timer.close();
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        return journal.checkpoint(snapshot()).whenComplete((done, error) -> timer.close());
+    }
+
+    /**
+     * Saves into the current save file, or into the autosave file when the
+     * game has not been saved or loaded yet.
+     */
+    public CompletableFuture<Void> autosave() {
+        return journal != null ? journal.checkpoint(snapshot()) : saveGameAsync(AUTOSAVE_FILE);
+    }
+
+    /**
+     * Loads a save file and replays its journal. Files written before the
+     * binary format, which hold a serialized GameState, are still accepted.
+     */
     public void loadGame(String filename) throws IOException, ClassNotFoundException {
-        try (ObjectInputStream in = new ObjectInputStream(
-                new FileInputStream(SAVE_DIR + filename))) {
-            GameState state = (GameState) in.readObject();
-            
-            currentLocation = state.getCurrentLocation();
-            energy = state.getEnergy();
-            score = state.getScore();
-            currentMission = state.getCurrentMission();
-            visitedLocations = state.getVisitedLocations();
-            gameData.locations = state.getLocations();
-            
-            gameGUI.updateLocation(currentLocation);
-            gameGUI.updateEnergyBar(energy);
-            gameGUI.updateScore(score);
-            handleLocationArrival();
+        GameMetrics.Timer timer = metrics.time("loadGame", currentLocation);
+        try {
+            closeJournal();
+            applySave(readSave(Paths.get(SAVE_DIR, filename)));
+        } finally {
+            timer.close();
+        }
+    }
+
+    /**
+     * Reads a save file and its journal in the background. The read runs on
+     * the journal thread, after the current journal has closed and before
+     * any save started later touches the file. The game keeps running
+     * meanwhile, without journaling; pass the result to {@link #applySave}
+     * on the thread that drives the engine.
+     */
+    public CompletableFuture<SaveFile> readSaveAsync(String filename) {
+        Path file = Paths.get(SAVE_DIR, filename);
+        GameMetrics.Timer timer = metrics.time("readSave", currentLocation);
+        closeJournalAsync();   // queued on the journal thread ahead of the read
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return readSave(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ClassNotFoundException e) {
+                throw new CompletionException(e);
+            } finally {
+                timer.close();
+            }
+        }, GameJournal.IO);
+    }
+
+    /**
+     * A save file and its journal as read from disk, not yet applied.
+     */
+    public static final class SaveFile {
+        final Path file;
+        final SaveCodec.Snapshot snapshot;   // null for an old serialized save
+        final GameState legacyState;
+        final ByteBuffer journal;
+
+        SaveFile(Path file, SaveCodec.Snapshot snapshot, GameState legacyState, ByteBuffer journal) {
+            this.file = file;
+            this.snapshot = snapshot;
+            this.legacyState = legacyState;
+            this.journal = journal;
+        }
+    }
+
+    private static SaveFile readSave(Path file) throws IOException, ClassNotFoundException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            if (SaveCodec.isLegacy(in)) {
+                GameState state = (GameState) new ObjectInputStream(in).readObject();
+                return new SaveFile(file, null, state, GameJournal.read(file));
+            }
+            return new SaveFile(file, SaveCodec.read(new DataInputStream(in)), null, GameJournal.read(file));
         }
     }
 
-    private void restartGame() {
-        energy = INITIAL_ENERGY;
+    /**
+     * Swaps a save read by {@link #readSaveAsync} into the running game and
+     * continues its journal. Nothing here waits on file work.
+     */
+    public void applySave(SaveFile save) throws IOException {
+        // A journal is only open if the game was saved while the file was
+        // read. If that save went to the same file, what was read is no
+        // longer on disk, so the loaded game is written out afresh.
+        boolean overwritten = journal != null && journal.getSnapshotFile().equals(save.file);
+        closeJournalAsync();
+        if (save.snapshot != null) {
+            restore(save.snapshot);
+        } else {
+            restoreLegacy(save.legacyState);
+        }
+        GameJournal.replay(save.journal, replayer);
+        if (overwritten) {
+            journal = GameJournal.startFresh(save.file, this::snapshot);
+            listeners.add(journal);
+            journal.checkpoint(snapshot()).exceptionally(e -> {
+                System.err.println("Error rewriting loaded save: " + e.getMessage());
+                return null;
+            });
+        } else {
+            journal = GameJournal.resume(save.file, this::snapshot, save.journal.limit());
+            listeners.add(journal);
+        }
+
+        finished = energy <= 0;
+        won = false;
+        gameGUI.updateLocation(currentLocation);
+        gameGUI.updateEnergyBar(energy);
+        gameGUI.updateScore(score);
+        handleLocationArrival();
+    }
+
+    public void addListener(GameEventListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GameEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Flushes and closes the journal of the current save, if there is one.
+     * Blocks until it is closed; the event thread should use
+     * {@link #closeJournalAsync} instead.
+     */
+    public void closeJournal() throws IOException {
+        if (journal != null) {
+            GameJournal closing = journal;
+            listeners.remove(closing);
+            journal = null;
+            closing.close();
+        }
+    }
+
+    /**
+     * Stops journaling at once and closes the journal in the background.
+     * A failure to close is reported, not passed on, so work chained after
+     * it still runs.
+     *
+     * @return Completes once the journal is closed.
+     */
+    public CompletableFuture<Void> closeJournalAsync() {
+        if (journal == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        GameJournal closing = journal;
+        listeners.remove(closing);
+        journal = null;
+        return closing.closeAsync().exceptionally(e -> {
+            System.err.println("Error closing save journal: " + e.getMessage());
+            return null;
+        });
+    }
+
+    private void fireScoreChanged() {
+        for (GameEventListener listener : listeners) {
+            listener.scoreChanged(score);
+        }
+    }
+
+    private void fireRandomAdvanced(int stream) {
+        long state = streams[stream].getState();
+        for (GameEventListener listener : listeners) {
+            listener.randomAdvanced(stream, state);
+        }
+    }
+
+    private void fireMissionAccepted(int missionIndex) {
+        for (GameEventListener listener : listeners) {
+            listener.missionAccepted(missionIndex);
+        }
+    }
+
+    private void fireMissionEnded(int missionIndex) {
+        for (GameEventListener listener : listeners) {
+            listener.missionEnded(missionIndex, completedMissions);
+        }
+    }
+
+    // Applies journal records on top of a restored snapshot.
+    private final GameEventListener replayer = new GameEventListener() {
+        @Override
+        public void locationEntered(int locationId, int newEnergy) {
+            currentLocation = gameData.locationIds.nameOf(locationId);
+            energy = newEnergy;
+            markVisited(currentLocation);
+        }
+
+        @Override
+        public void energyChanged(int newEnergy) {
+            energy = newEnergy;
+        }
+
+        @Override
+        public void enemyChanged(int locationId, int enemyId, int health) {
+            world.setHealth(locationId, enemyId, health);
+        }
+
+        @Override
+        public void scoreChanged(int newScore) {
+            score = newScore;
+        }
+
+        @Override
+        public void missionChanged(int missionIndex, int completed) {
+            missions.clear();
+            missions.add(missionIndex);
+            completedMissions = completed;
+        }
+
+        @Override
+        public void missionAccepted(int missionIndex) {
+            missions.add(missionIndex);
+        }
+
+        @Override
+        public void missionEnded(int missionIndex, int completed) {
+            missions.remove(missionIndex);
+            completedMissions = completed;
+        }
+
+        @Override
+        public void randomAdvanced(int stream, long state) {
+            if (stream >= 0 && stream < STREAM_COUNT) {
+                streams[stream].setState(state);
+            }
+        }
+    };
+
+    SaveCodec.Snapshot snapshot() {
+        SaveCodec.Snapshot snapshot = new SaveCodec.Snapshot();
+        snapshot.locationCount = gameData.locationIds.size();
+        snapshot.edgeCount = gameData.connections.edgeCount();
+        snapshot.currentLocation = currentLocation;
+        snapshot.energy = energy;
+        snapshot.score = score;
+        snapshot.completedMissions = completedMissions;
+        for (int missionIndex : missions.getActive()) {
+            snapshot.missions.add(missionIndex);
+        }
+        snapshot.seed = seed;
+        snapshot.randomStates = new long[STREAM_COUNT];
+        for (int i = 0; i < STREAM_COUNT; i++) {
+            snapshot.randomStates[i] = streams[i].getState();
+        }
+        snapshot.visited.or(visitedIds());
+        world.addChangesTo(snapshot);
+        return snapshot;
+    }
+
+    private void restore(SaveCodec.Snapshot snapshot) throws IOException {
+        if (snapshot.locationCount != gameData.locationIds.size()
+                || snapshot.edgeCount != gameData.connections.edgeCount()) {
+            throw new IOException("Save file was written for a different world");
+        }
+        world.reset();
+
+        currentLocation = snapshot.currentLocation;
+        energy = snapshot.energy;
+        score = snapshot.score;
+        completedMissions = snapshot.completedMissions;
+        missions.clear();
+        for (int i = 0; i < snapshot.missions.size(); i++) {
+            missions.add(snapshot.missions.get(i));
+        }
+        // Saves from before random streams were recorded keep the current ones.
+        if (snapshot.randomStates != null) {
+            reseed(snapshot.seed);
+            for (int i = 0; i < Math.min(STREAM_COUNT, snapshot.randomStates.length); i++) {
+                streams[i].setState(snapshot.randomStates[i]);
+            }
+        }
+
+        visited = PersistentIntArray.EMPTY;
+        for (int id = snapshot.visited.nextSetBit(0); id >= 0; id = snapshot.visited.nextSetBit(id + 1)) {
+            markVisited(id);
+        }
+
+        IntList changes = snapshot.enemyChanges;
+        for (int i = 0; i < changes.size(); i += 3) {
+            world.setHealth(changes.get(i), changes.get(i + 1), changes.get(i + 2));
+        }
+    }
+
+    // Old saves carry a copy of every location. Their enemies are matched by
+    // name against the loaded world so enemy ids stay those of the world files.
+    private void restoreLegacy(GameState state) {
+        world.reset();
+
+        currentLocation = state.getCurrentLocation();
+        energy = state.getEnergy();
+        score = state.getScore();
+        missions.clear();
+        Mission mission = state.getCurrentMission();
+        if (mission != null) {
+            for (int i = 0; i < gameData.missions.size(); i++) {
+                if (gameData.missions.get(i).getTitle().equals(mission.getTitle())) {
+                    missions.add(i);
+                    break;
+                }
+            }
+        }
+        completedMissions = 0;
+        visited = PersistentIntArray.EMPTY;
+        for (String name : state.getVisitedLocations()) {
+            markVisited(name);
+        }
+
+        for (Map.Entry<String, Location> entry : state.getLocations().entrySet()) {
+            Location location = gameData.locations.get(entry.getKey());
+            int id = gameData.locationIds.idOf(entry.getKey());
+            if (location == null || id < 0) {
+                continue;
+            }
+            List<Enemy> saved = new ArrayList<>(entry.getValue().getEnemies());
+            for (int e = 0; e < location.getEnemyCount(); e++) {
+                Enemy enemy = location.getEnemy(e);
+                Enemy match = null;
+                for (Enemy candidate : saved) {
+                    if (candidate.getName().equals(enemy.getName())) {
+                        match = candidate;
+                        break;
+                    }
+                }
+                if (match == null) {
+                    world.setHealth(id, e, SaveCodec.REMOVED);
+                } else {
+                    saved.remove(match);
+                    if (match.getCurrentHealth() != enemy.getMaxHealth()) {
+                        world.setHealth(id, e, match.getCurrentHealth());
+                    }
+                }
+            }
+        }
+    }
+
+    private void markVisited(String name) {
+        int id = gameData.locationIds.idOf(name);
+        if (id >= 0) {
+            markVisited(id);
+        }
+    }
+
+    private void markVisited(int id) {
+        visited = visited.set(id >>> 5, visited.get(id >>> 5) | (1 << (id & 31)));
+    }
+
+    private boolean isVisited(String name) {
+        int id = gameData.locationIds.idOf(name);
+        return id >= 0 && (visited.get(id >>> 5) & (1 << (id & 31))) != 0;
+    }
+
+    private BitSet visitedIds() {
+        BitSet ids = new BitSet();
+        for (int word = visited.nextNonZero(0); word >= 0; word = visited.nextNonZero(word + 1)) {
+            int bits = visited.get(word);
+            for (int bit = Integer.numberOfTrailingZeros(bits); bit < 32; bit++) {
+                if ((bits & (1 << bit)) != 0) {
+                    ids.set(word * 32 + bit);
+                }
+            }
+        }
+        return ids;
+    }
+
+    // Critical locations count as discovered once they have been visited.
+    private int discoveredCriticalCount() {
+        int count = 0;
+        for (String name : CRITICAL_LOCATIONS) {
+            if (isVisited(name)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Starts a new game from Earth with fresh enemies and full energy.
+     */
+    public void restartGame() {
+        closeJournalAsync();
+        world.reset();
+        finished = false;
+        won = false;
+        energy = initialEnergy;
         score = 0;
         completedMissions = 0;
-        discoveredCriticalLocations.clear();
-        visitedLocations.clear();
-        currentMission = null;
+        visited = PersistentIntArray.EMPTY;
+        missions.clear();
         startGame("earth");
     }
 
+    /**
+     * The whole state of a game at one moment. Visited locations and enemy
+     * health live in persistent arrays that later play never changes, so a
+     * checkpoint shares them with the running game instead of copying, and
+     * taking one costs the same however far the game has gone.
+     */
+    public static final class Checkpoint {
+        private final GameData world;
+        private final String location;
+        private final int energy;
+        private final int score;
+        private final int completedMissions;
+        private final int[] missions;
+        private final boolean finished;
+        private final boolean won;
+        private final PersistentIntArray visited;
+        private final PersistentIntArray enemies;
+        private final long[] randomStates;
+
+        private Checkpoint(GameEngine engine) {
+            world = engine.gameData;
+            location = engine.currentLocation;
+            energy = engine.energy;
+            score = engine.score;
+            completedMissions = engine.completedMissions;
+            missions = engine.missions.getActive();
+            finished = engine.finished;
+            won = engine.won;
+            visited = engine.visited;
+            enemies = engine.world.changes();
+            randomStates = new long[STREAM_COUNT];
+            for (int i = 0; i < STREAM_COUNT; i++) {
+                randomStates[i] = engine.streams[i].getState();
+            }
+        }
+
+        public String getLocation() { return location; }
+        public int getEnergy() { return energy; }
+        public int getScore() { return score; }
+    }
+
+    /**
+     * Captures the game as it is now, for {@link #rollback}.
+     */
+    public Checkpoint checkpoint() {
+        return new Checkpoint(this);
+    }
+
+    /**
+     * Tells whether the location, energy, score or active missions differ
+     * from those of a checkpoint, i.e. whether taking it back would undo
+     * anything the player sees.
+     */
+    public boolean hasChangedSince(Checkpoint checkpoint) {
+        return energy != checkpoint.energy || score != checkpoint.score
+            || !currentLocation.equals(checkpoint.location)
+            || missions.getActive() != checkpoint.missions;   // replaced on every change
+    }
+
+    /**
+     * Puts the game back as it was when a checkpoint was taken, random
+     * streams included, so the same moves play out the same way again. An
+     * open save journal is compacted into a new snapshot, since its records
+     * cannot take anything back.
+     *
+     * @throws IllegalArgumentException If the checkpoint is from a game in
+     *         another world.
+     */
+    public void rollback(Checkpoint checkpoint) {
+        if (checkpoint.world != gameData) {
+            throw new IllegalArgumentException("Checkpoint belongs to a different world");
+        }
+        currentLocation = checkpoint.location;
+        energy = checkpoint.energy;
+        score = checkpoint.score;
+        completedMissions = checkpoint.completedMissions;
+        missions.setAll(checkpoint.missions);
+        finished = checkpoint.finished;
+        won = checkpoint.won;
+        visited = checkpoint.visited;
+        world.restore(checkpoint.enemies);
+        for (int i = 0; i < STREAM_COUNT; i++) {
+            streams[i].setState(checkpoint.randomStates[i]);
+        }
+        if (journal != null) {
+            journal.checkpoint(snapshot()).exceptionally(e -> {
+                System.err.println("Error saving rolled back game: " + e.getMessage());
+                return null;
+            });
+        }
+
+        refreshGUI();
+    }
+
+    /**
+     * Sends the GUI the location, energy, score and mission as they are
+     * now, e.g. after a stretch of play it was not shown.
+     */
+    public void refreshGUI() {
+        gameGUI.updateLocation(currentLocation);
+        gameGUI.updateEnergyBar(energy);
+        gameGUI.updateScore(score);
+        gameGUI.updateMission(missionText());
+    }
+
+    /**
+     * Points the engine at another GUI, e.g. a silent one while a batch of
+     * commands runs.
+     *
+     * @return The GUI it used before.
+     */
+    GameGUI setGUI(GameGUI gui) {
+        GameGUI previous = gameGUI;
+        gameGUI = gui;
+        return previous;
+    }
+
     
     public String getCurrentLocation() { return currentLocation; }
     public String getCurrentLocationDescription() {
@@ -358,11 +1077,98 @@ public class GameEngine {
         return loc != null ? loc.getDescription() : "Unknown location.";
     }
     public int getEnergy() { return energy; }
+    public GameRules getRules() { return rules; }
+    /** True once the game has been won or lost. */
+    public boolean isFinished() { return finished; }
+    public boolean hasWon() { return won; }
     public int getScore() { return score; }
-    public Mission getCurrentMission() { return currentMission; }
-    public Set<String> getVisitedLocations() { return new HashSet<>(visitedLocations); }
+    /** The active mission accepted first, or null if there is none. */
+    public Mission getCurrentMission() { return missions.first(); }
+    /** Every active mission, in the order they were accepted. */
+    public List<Mission> getActiveMissions() { return missions.getMissions(); }
+    public boolean isMissionActive(int missionIndex) { return missions.isActive(missionIndex); }
+    public Set<String> getVisitedLocations() {
+        Set<String> names = new HashSet<>();
+        BitSet ids = visitedIds();
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            names.add(gameData.locationIds.nameOf(id));
+        }
+        return names;
+    }
+    /**
+     * The locations one move away, in the graph's order, as a read-only view
+     * of the current location's edges. Nothing is copied; the view keeps
+     * naming the neighbours of the location it was taken at.
+     */
     public Set<String> getPossibleMoves() {
-        return new HashSet<>(gameData.connections.getOrDefault(currentLocation, new HashSet<>()));
+        int node = gameData.locationIds.idOf(currentLocation);
+        return node < 0 ? Collections.emptySet() : new Moves(gameData, node);
     }
+
+    // The neighbours of one location. The graph merges duplicate edges, so
+    // the edge slice is already a set.
+    private static final class Moves extends AbstractSet<String> {
+        private final GameData world;
+        private final int node;
+
+        Moves(GameData world, int node) {
+            this.world = world;
+            this.node = node;
+        }
+
+        @Override
+        public int size() {
+            return world.connections.degree(node);
+        }
+
+        @Override
+        public boolean contains(Object name) {
+            return name instanceof String
+                && world.connections.edgeTo(node, world.locationIds.idOf((String) name)) >= 0;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            ConnectionGraph graph = world.connections;
+            return new Iterator<String>() {
+                private int edge = graph.firstEdge(node);
+
+                @Override
+                public boolean hasNext() {
+                    return edge < graph.endEdge(node);
+                }
+
+                @Override
+                public String next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return world.locationIds.nameOf(graph.target(edge++));
+                }
+            };
+        }
+    }
+
     public int getCompletedMissions() { return completedMissions; }
+
+    /**
+     * The enemies still at the current location, with their health in this
+     * game, as a read-only list.
+     */
+    public List<Enemy> getEnemiesHere() {
+        return world.enemiesAt(gameData.locationIds.idOf(currentLocation));
+    }
+
+    /**
+     * Finds an enemy at the current location by a name as typed, e.g.
+     * "pirate" for a Space Pirate. See {@link WorldState#findEnemy}.
+     *
+     * @return The enemy, or null if none here matches.
+     */
+    public Enemy findEnemyHere(String name) {
+        return world.findEnemy(gameData.locationIds.idOf(currentLocation), name);
+    }
+
+    /** This game's changes to the shared world. */
+    public WorldState getWorldState() { return world; }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+// File: GameEventListener.java
+
+/**
+ * Receives the state changes made by a GameEngine as they happen. Every
+ * event carries the new absolute value rather than a difference, so applying
+ * the same event twice leaves the state as applying it once.
+ */
+public interface GameEventListener {
+
+    /** The player arrived at a location, with the energy left after the trip. */
+    default void locationEntered(int locationId, int energy) {
+    }
+
+    default void energyChanged(int energy) {
+    }
+
+    /**
+     * An enemy's health changed.
+     *
+     * @param health The new health, or {@link SaveCodec#REMOVED} once the
+     *               enemy has been defeated and taken out of the location.
+     */
+    default void enemyChanged(int locationId, int enemyId, int health) {
+    }
+
+    /**
+     * A fight is over, summed up in one event. It follows the energy and
+     * enemy changes the fight caused and changes no state of its own.
+     */
+    default void combatEnded(int locationId, int enemyId, int rounds, int damageDealt, int damageTaken) {
+    }
+
+    /**
+     * A random stream of the engine drew numbers.
+     *
+     * @param stream The stream, e.g. GameEngine.COMBAT_STREAM.
+     * @param state The stream's new state, see {@link GameRandom#getState}.
+     */
+    default void randomAdvanced(int stream, long state) {
+    }
+
+    default void scoreChanged(int score) {
+    }
+
+    /**
+     * The active missions were replaced by one mission, or by none. Games
+     * from before several missions could be active recorded this; the
+     * engine now fires {@link #missionAccepted} and {@link #missionEnded}.
+     *
+     * @param missionIndex The index in GameData.missions, or -1 for none.
+     * @param completedMissions The number of missions completed so far.
+     */
+    default void missionChanged(int missionIndex, int completedMissions) {
+    }
+
+    /**
+     * A mission became active.
+     *
+     * @param missionIndex The index in GameData.missions.
+     */
+    default void missionAccepted(int missionIndex) {
+    }
+
+    /**
+     * A mission stopped being active, completed or dropped.
+     *
+     * @param missionIndex The index in GameData.missions.
+     * @param completedMissions The number of missions completed so far.
+     */
+    default void missionEnded(int missionIndex, int completedMissions) {
+    }
+}
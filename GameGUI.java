@@ -3,6 +3,8 @@ public interface GameGUI {
     void appendToConsole(String message);
     void updateEnergyBar(int energy);
     void gameOver();
+    /** Called once the player has won; the engine accepts no further play. */
+    void victory();
     void updateLocation(String location);
     void updateScore(int score);
     void updateMission(String missionText);
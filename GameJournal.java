@@ -0,0 +1,477 @@
+// File: GameJournal.java
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the changes made since the last save snapshot. Each
+ * engine event becomes one small record; records are buffered and written
+ * with a single fsync at most every {@link #COMMIT_INTERVAL_MS}, so a crash
+ * loses at most that window of play. After {@link #COMPACT_AFTER} records
+ * the journal writes a fresh snapshot and drops the records it covers.
+ *
+ * A record is a type byte, its int fields, and a CRC32 of both. Recovery
+ * stops at the first short or damaged record, which is where a crash cut
+ * the last write off, and later appends go after the last good record.
+ *
+ * Writing a snapshot and trimming the journal are two steps, and a crash
+ * can fall between them. Replaying the old records on the new snapshot is
+ * not harmless: after a rollback they would redo what was taken back. So
+ * each checkpoint first journals a mark holding the CRC32 of the snapshot
+ * it is about to write, and makes it durable. Recovery replays only the
+ * records after the last mark that matches the snapshot on disk, or all of
+ * them when none does, i.e. when the trim finished or the snapshot never
+ * got written.
+ *
+ * All file work, including opening, snapshots and closing, runs on one
+ * background thread shared by every journal, in the order it was asked
+ * for; the engine reads saves there too. The thread driving the engine
+ * only encodes snapshots and fills the in-memory buffer, and a journal
+ * closed in the background is done with its file before a later journal or
+ * read of the same save touches it.
+ */
+public class GameJournal implements GameEventListener, AutoCloseable {
+    static final long COMMIT_INTERVAL_MS = 20;
+    static final int COMPACT_AFTER = 512;
+
+    private static final byte LOCATION_ENTERED = 1;
+    private static final byte ENERGY_CHANGED = 2;
+    private static final byte ENEMY_CHANGED = 3;
+    private static final byte SCORE_CHANGED = 4;
+    private static final byte MISSION_CHANGED = 5;
+    private static final byte RANDOM_ADVANCED = 6;
+    private static final byte MISSION_ACCEPTED = 7;
+    private static final byte MISSION_ENDED = 8;
+    private static final byte SNAPSHOT_MARK = 9;
+    private static final int MAX_FIELDS = 3;
+    /** The thread all save and journal file work runs on, in order. */
+    static final ScheduledExecutorService IO = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "game-journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final Supplier<SaveCodec.Snapshot> snapshots;
+    private final ScheduledFuture<?> committer;
+    private final Thread shutdownHook = new Thread(this::commitQuietly, "game-journal-shutdown");
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;      // null until opened on the I/O thread, or the first snapshot of a new save is written
+    private long base;                // position in the record stream of the file's first byte
+    private long written;             // bytes in the file
+    private ByteBuffer pending = ByteBuffer.allocate(4096);
+    private int recordCount;
+
+    private GameJournal(Path snapshotFile, Supplier<SaveCodec.Snapshot> snapshots) {
+        this.snapshotFile = snapshotFile;
+        this.journalFile = journalFor(snapshotFile);
+        this.snapshots = snapshots;
+        committer = IO.scheduleWithFixedDelay(this::commitQuietly,
+            COMMIT_INTERVAL_MS, COMMIT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Continues the journal of a save that has just been loaded. The file
+     * is opened in the background; records are held in memory until then.
+     *
+     * @param snapshotFile The save file the journal belongs to.
+     * @param snapshots Supplies the current game state for compaction.
+     * @param validLength The length of the intact records, as returned in
+     *                    the buffer from {@link #read}; anything after it is cut off.
+     */
+    public static GameJournal resume(Path snapshotFile, Supplier<SaveCodec.Snapshot> snapshots, long validLength) {
+        GameJournal journal = new GameJournal(snapshotFile, snapshots);
+        journal.written = validLength;   // checkpoints count from here before the file is open
+        IO.execute(() -> {
+            try {
+                journal.open(validLength);
+            } catch (IOException e) {
+                System.err.println("Error opening save journal: " + e.getMessage());
+            }
+        });
+        return journal;
+    }
+
+    private synchronized void open(long validLength) throws IOException {
+        FileChannel opened = FileChannel.open(journalFile, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        opened.truncate(validLength);
+        opened.position(validLength);
+        channel = opened;
+    }
+
+    /**
+     * Starts a journal for a save whose first snapshot is still to be written
+     * by {@link #checkpoint}. Records are held in memory until that snapshot
+     * is on disk. Any journal left from an earlier game is deleted first,
+     * in the background, after an earlier journal of the save has closed.
+     */
+    public static GameJournal startFresh(Path snapshotFile, Supplier<SaveCodec.Snapshot> snapshots) {
+        Path journalFile = journalFor(snapshotFile);
+        IO.execute(() -> {
+            try {
+                Files.deleteIfExists(journalFile);
+            } catch (IOException e) {
+                System.err.println("Error deleting old journal: " + e.getMessage());
+            }
+        });
+        return new GameJournal(snapshotFile, snapshots);
+    }
+
+    /** The journal file kept next to a save file. */
+    public static Path journalFor(Path snapshotFile) {
+        String name = snapshotFile.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return snapshotFile.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".journal");
+    }
+
+    public Path getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * Reads the intact records of a save's journal that its snapshot does
+     * not already hold. A missing journal reads as empty. Meant to be called
+     * off the game thread; replay the result with
+     * {@link #replay(ByteBuffer, GameEventListener)}.
+     *
+     * @return The records from its position to its limit; the limit is
+     *         also the length of the intact part of the file.
+     */
+    public static ByteBuffer read(Path snapshotFile) throws IOException {
+        Path journal = journalFor(snapshotFile);
+        if (!Files.exists(journal)) {
+            return ByteBuffer.allocate(0);
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(journal));
+        int snapshotCrc = Files.exists(snapshotFile) ? checksum(Files.readAllBytes(snapshotFile)) : 0;
+        int[] resumeAt = {0};
+        int end = scan(data.duplicate(), (type, fields, after) -> {
+            if (type == SNAPSHOT_MARK && fields[0] == snapshotCrc) {
+                resumeAt[0] = after;   // everything up to here is in the snapshot
+            }
+        });
+        data.limit(end).position(resumeAt[0]);
+        return data;
+    }
+
+    /**
+     * Feeds records read by {@link #read} to a listener.
+     */
+    public static void replay(ByteBuffer records, GameEventListener target) {
+        scan(records.duplicate(), (type, fields, after) -> {
+            if (type != SNAPSHOT_MARK) {
+                dispatch(type, fields, target);
+            }
+        });
+    }
+
+    // Receives each intact record and the offset just after it.
+    private interface RecordVisitor {
+        void visit(byte type, int[] fields, int after);
+    }
+
+    // Walks the records and returns the offset after the last intact one.
+    private static int scan(ByteBuffer data, RecordVisitor visitor) {
+        CRC32 crc = new CRC32();
+        int[] fields = new int[MAX_FIELDS];
+        int end = data.position();
+        while (data.hasRemaining()) {
+            int start = data.position();
+            byte type = data.get();
+            int count = fieldCount(type);
+            if (count < 0 || data.remaining() < count * 4 + 4) {
+                break;
+            }
+            for (int i = 0; i < count; i++) {
+                fields[i] = data.getInt();
+            }
+            crc.reset();
+            crc.update(data.duplicate().position(start).limit(data.position()));
+            if ((int) crc.getValue() != data.getInt()) {
+                break;
+            }
+            end = data.position();
+            visitor.visit(type, fields, end);
+        }
+        return end;
+    }
+
+    private static int fieldCount(byte type) {
+        switch (type) {
+            case LOCATION_ENTERED: return 2;
+            case ENERGY_CHANGED: return 1;
+            case ENEMY_CHANGED: return 3;
+            case SCORE_CHANGED: return 1;
+            case MISSION_CHANGED: return 2;
+            case RANDOM_ADVANCED: return 3;
+            case MISSION_ACCEPTED: return 1;
+            case MISSION_ENDED: return 2;
+            case SNAPSHOT_MARK: return 1;
+            default: return -1;
+        }
+    }
+
+    private static void dispatch(byte type, int[] fields, GameEventListener target) {
+        switch (type) {
+            case LOCATION_ENTERED: target.locationEntered(fields[0], fields[1]); break;
+            case ENERGY_CHANGED: target.energyChanged(fields[0]); break;
+            case ENEMY_CHANGED: target.enemyChanged(fields[0], fields[1], fields[2]); break;
+            case SCORE_CHANGED: target.scoreChanged(fields[0]); break;
+            case MISSION_CHANGED: target.missionChanged(fields[0], fields[1]); break;
+            case MISSION_ACCEPTED: target.missionAccepted(fields[0]); break;
+            case MISSION_ENDED: target.missionEnded(fields[0], fields[1]); break;
+            case RANDOM_ADVANCED:
+                target.randomAdvanced(fields[0], ((long) fields[1] << 32) | (fields[2] & 0xffffffffL));
+                break;
+            default: throw new IllegalArgumentException("Unknown record type " + type);
+        }
+    }
+
+    @Override
+    public void locationEntered(int locationId, int energy) {
+        append(LOCATION_ENTERED, locationId, energy, 0);
+    }
+
+    @Override
+    public void energyChanged(int energy) {
+        append(ENERGY_CHANGED, energy, 0, 0);
+    }
+
+    @Override
+    public void enemyChanged(int locationId, int enemyId, int health) {
+        append(ENEMY_CHANGED, locationId, enemyId, health);
+    }
+
+    @Override
+    public void scoreChanged(int score) {
+        append(SCORE_CHANGED, score, 0, 0);
+    }
+
+    @Override
+    public void missionChanged(int missionIndex, int completedMissions) {
+        append(MISSION_CHANGED, missionIndex, completedMissions, 0);
+    }
+
+    @Override
+    public void missionAccepted(int missionIndex) {
+        append(MISSION_ACCEPTED, missionIndex, 0, 0);
+    }
+
+    @Override
+    public void missionEnded(int missionIndex, int completedMissions) {
+        append(MISSION_ENDED, missionIndex, completedMissions, 0);
+    }
+
+    @Override
+    public void randomAdvanced(int stream, long state) {
+        append(RANDOM_ADVANCED, stream, (int) (state >>> 32), (int) state);
+    }
+
+    private void append(byte type, int a, int b, int c) {
+        synchronized (this) {
+            put(type, a, b, c);
+        }
+        if (++recordCount >= COMPACT_AFTER) {
+            recordCount = 0;
+            checkpoint(snapshots.get()).exceptionally(e -> {
+                System.err.println("Journal compaction failed: " + e.getMessage());
+                return null;
+            });
+        }
+    }
+
+    // Adds one record to the buffer; the caller holds the lock.
+    private void put(byte type, int a, int b, int c) {
+        int count = fieldCount(type);
+        if (pending.remaining() < 1 + MAX_FIELDS * 4 + 4) {
+            ByteBuffer larger = ByteBuffer.allocate(pending.capacity() * 2);
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        int start = pending.position();
+        pending.put(type);
+        if (count > 0) pending.putInt(a);
+        if (count > 1) pending.putInt(b);
+        if (count > 2) pending.putInt(c);
+        crc.reset();
+        crc.update(pending.duplicate().position(start).limit(pending.position()));
+        pending.putInt((int) crc.getValue());
+    }
+
+    /**
+     * Writes out and fsyncs every buffered record.
+     */
+    public synchronized void commit() throws IOException {
+        if (channel == null || pending.position() == 0) {
+            return;
+        }
+        pending.flip();
+        while (pending.hasRemaining()) {
+            written += channel.write(pending);
+        }
+        pending.clear();
+        channel.force(false);
+    }
+
+    private void commitQuietly() {
+        try {
+            commit();
+        } catch (IOException e) {
+            System.err.println("Journal commit failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a snapshot in the background and then drops the journal records
+     * it covers. Call it from the thread that drives the engine, with a
+     * snapshot just taken there, so the snapshot matches the records so far.
+     * The snapshot is encoded on the calling thread, so the mark before it
+     * can carry its checksum.
+     *
+     * @return Completes once the snapshot is durable.
+     */
+    public CompletableFuture<Void> checkpoint(SaveCodec.Snapshot snapshot) {
+        byte[] encoded;
+        try {
+            encoded = encode(snapshot);
+        } catch (IOException e) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        long mark;
+        synchronized (this) {
+            put(SNAPSHOT_MARK, checksum(encoded), 0, 0);
+            mark = base + written + pending.position();
+        }
+        return CompletableFuture.runAsync(() -> {
+            try {
+                commit();   // the mark must be on disk before the snapshot
+                writeSnapshot(snapshotFile, encoded);
+                trim(mark);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, IO);
+    }
+
+    // Rewrites the journal without the records before mark. The kept tail
+    // goes to a new file that is renamed over the old one.
+    private synchronized void trim(long mark) throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(journalFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        commit();
+        long from = mark - base;
+        ByteBuffer tail = ByteBuffer.allocate((int) (written - from));
+        while (tail.hasRemaining() && channel.read(tail, from + tail.position()) > 0) {
+            // keep reading
+        }
+        tail.flip();
+
+        Path temp = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        FileChannel trimmed = FileChannel.open(temp, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        while (tail.hasRemaining()) {
+            trimmed.write(tail);
+        }
+        trimmed.force(true);
+        Files.move(temp, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel.close();
+        channel = trimmed;
+        written = channel.position();
+        base = mark;
+    }
+
+    /**
+     * Writes an encoded snapshot next to the save file and renames it over
+     * the old one, so a crash leaves either the old or the new snapshot in
+     * place.
+     */
+    static void writeSnapshot(Path file, byte[] encoded) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.wrap(encoded);
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            out.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static byte[] encode(SaveCodec.Snapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            SaveCodec.write(snapshot, out);
+        }
+        return bytes.toByteArray();
+    }
+
+    static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Commits what is buffered and closes the file in the background, after
+     * any snapshot still being written. No records may be added after this.
+     *
+     * @return Completes once the file is closed.
+     */
+    public CompletableFuture<Void> closeAsync() {
+        committer.cancel(false);
+        return CompletableFuture.runAsync(() -> {
+            try {
+                commit();
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // Already shutting down; the hook finds nothing left to commit.
+            }
+        }, IO);
+    }
+
+    /**
+     * Waits for pending snapshots, commits what is buffered and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            closeAsync().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof UncheckedIOException
+                ? ((UncheckedIOException) e.getCause()).getCause()
+                : new IOException(e.getCause());
+        }
+    }
+}
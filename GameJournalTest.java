@@ -0,0 +1,182 @@
+// File: GameJournalTest.java
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Checks that journal records replay in order, that recovery stops at a
+ * torn record, that compaction writes a snapshot and trims the records it
+ * covers, and that a crash between the two steps replays only what the
+ * snapshot on disk does not already hold. Run with
+ * {@code java GameJournalTest}; exits non-zero on failure.
+ */
+public class GameJournalTest {
+    private static final byte SNAPSHOT_MARK = 9;   // record type, as in GameJournal
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("journal");
+        Path save = dir.resolve("game.dat");
+        try {
+            checkReplay(save);
+            checkTornRecord(save);
+            checkCompaction(save);
+            checkCrashAfterSnapshot(save);
+            checkCrashBeforeSnapshot(save);
+        } finally {
+            for (Path file : new Path[] {save, GameJournal.journalFor(save)}) {
+                Files.deleteIfExists(file);
+            }
+            Files.delete(dir);
+        }
+
+        if (failures > 0) {
+            System.err.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("GameJournalTest OK");
+    }
+
+    private static void checkReplay(Path save) throws IOException {
+        SaveCodec.Snapshot start = snapshot(100);
+        try (GameJournal journal = GameJournal.startFresh(save, () -> start)) {
+            journal.energyChanged(90);   // held in memory until the first snapshot is on disk
+            journal.checkpoint(start).join();
+            journal.locationEntered(4, 80);
+            journal.enemyChanged(4, 1, SaveCodec.REMOVED);
+            journal.scoreChanged(150);
+            journal.missionAccepted(6);
+            journal.missionEnded(6, 1);
+            journal.randomAdvanced(2, 0x1234_5678_9abc_def0L);
+        }
+        check(energyOf(save) == 100, "the first snapshot is written");
+        check(replay(save).equals(List.of("location 4 80", "enemy 4 1 -1", "score 150", "accepted 6",
+            "ended 6 1", "random 2 1311768467463790320")), "records replay in order, got " + replay(save));
+    }
+
+    // A crash cut the last record short: recovery keeps what came before,
+    // and a resumed journal appends after it.
+    private static void checkTornRecord(Path save) throws IOException {
+        Path file = GameJournal.journalFor(save);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        List<String> records = replay(save);
+        check(records.size() == 5 && records.get(4).equals("ended 6 1"), "a torn record is dropped, got " + records);
+
+        ByteBuffer intact = GameJournal.read(save);
+        try (GameJournal journal = GameJournal.resume(save, () -> snapshot(0), intact.limit())) {
+            journal.energyChanged(70);
+        }
+        records = replay(save);
+        check(records.size() == 6 && records.get(5).equals("energy 70"), "appends follow the last good record");
+    }
+
+    private static void checkCompaction(Path save) throws IOException {
+        int[] energy = {1000};
+        try (GameJournal journal = GameJournal.startFresh(save, () -> snapshot(energy[0]))) {
+            journal.checkpoint(snapshot(energy[0])).join();
+            for (int i = 0; i < GameJournal.COMPACT_AFTER; i++) {
+                journal.energyChanged(--energy[0]);
+            }
+            journal.energyChanged(7);
+            journal.energyChanged(6);
+        }
+        check(energyOf(save) == 1000 - GameJournal.COMPACT_AFTER, "compaction writes the state so far");
+        check(replay(save).equals(List.of("energy 7", "energy 6")), "compaction drops the records it covers, got "
+            + replay(save).size() + " records");
+    }
+
+    // The snapshot of a rollback was written, but the journal was not yet
+    // trimmed: the records before its mark must not be replayed on it.
+    private static void checkCrashAfterSnapshot(Path save) throws IOException {
+        SaveCodec.Snapshot rolledBack = snapshot(100);
+        GameJournal.writeSnapshot(save, GameJournal.encode(rolledBack));
+        writeJournal(save, record((byte) 3, 4, 1, SaveCodec.REMOVED),
+            mark(rolledBack), record((byte) 2, 30));
+        check(replay(save).equals(List.of("energy 30")), "only records after the snapshot's mark replay, got "
+            + replay(save));
+    }
+
+    // The mark is on disk but its snapshot never was: replay everything on
+    // the old snapshot.
+    private static void checkCrashBeforeSnapshot(Path save) throws IOException {
+        GameJournal.writeSnapshot(save, GameJournal.encode(snapshot(100)));
+        writeJournal(save, record((byte) 2, 50), mark(snapshot(50)));
+        check(replay(save).equals(List.of("energy 50")), "records replay when their snapshot is missing");
+    }
+
+    private static SaveCodec.Snapshot snapshot(int energy) {
+        SaveCodec.Snapshot snapshot = new SaveCodec.Snapshot();
+        snapshot.currentLocation = "earth";
+        snapshot.energy = energy;
+        return snapshot;
+    }
+
+    private static int energyOf(Path save) throws IOException {
+        byte[] bytes = Files.readAllBytes(save);
+        return SaveCodec.read(new DataInputStream(new ByteArrayInputStream(bytes))).energy;
+    }
+
+    private static List<String> replay(Path save) throws IOException {
+        List<String> seen = new ArrayList<>();
+        GameJournal.replay(GameJournal.read(save), new GameEventListener() {
+            @Override
+            public void locationEntered(int locationId, int energy) { seen.add("location " + locationId + " " + energy); }
+            @Override
+            public void energyChanged(int energy) { seen.add("energy " + energy); }
+            @Override
+            public void enemyChanged(int locationId, int enemyId, int health) {
+                seen.add("enemy " + locationId + " " + enemyId + " " + health);
+            }
+            @Override
+            public void scoreChanged(int score) { seen.add("score " + score); }
+            @Override
+            public void missionAccepted(int missionIndex) { seen.add("accepted " + missionIndex); }
+            @Override
+            public void missionEnded(int missionIndex, int completed) { seen.add("ended " + missionIndex + " " + completed); }
+            @Override
+            public void randomAdvanced(int stream, long state) { seen.add("random " + stream + " " + state); }
+        });
+        return seen;
+    }
+
+    private static void writeJournal(Path save, byte[]... records) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(1024);
+        for (byte[] record : records) {
+            bytes.put(record);
+        }
+        Files.write(GameJournal.journalFor(save), Arrays.copyOf(bytes.array(), bytes.position()));
+    }
+
+    private static byte[] mark(SaveCodec.Snapshot snapshot) throws IOException {
+        return record(SNAPSHOT_MARK, GameJournal.checksum(GameJournal.encode(snapshot)));
+    }
+
+    // A type byte, the fields, then a CRC32 of both.
+    private static byte[] record(byte type, int... fields) {
+        ByteBuffer record = ByteBuffer.allocate(1 + fields.length * 4 + 4);
+        record.put(type);
+        for (int field : fields) {
+            record.putInt(field);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue());
+        return record.array();
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + what);
+        }
+    }
+}
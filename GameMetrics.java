@@ -0,0 +1,153 @@
+// File: GameMetrics.java
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import jdk.jfr.EventType;
+
+/**
+ * Latency histograms by name for the engine operations, the world loader
+ * phases and the typed commands, cheap enough to keep on all the time.
+ * Timing an operation also fires a JDK Flight Recorder event while a
+ * recording of it is running; otherwise no event is made at all.
+ *
+ * The game shares one instance, {@link #global()}; {@link #NONE} records
+ * nothing, for simulations that run millions of operations.
+ */
+public class GameMetrics {
+    private static final GameMetrics GLOBAL = new GameMetrics(true);
+    /** Records nothing and fires no events. */
+    public static final GameMetrics NONE = new GameMetrics(false);
+
+    private static final Timer NOT_TIMED = new Timer(null, null);
+    // Looked up once; isEnabled() is true only while a recording takes them.
+    private static final EventType OPERATION_EVENTS = EventType.getEventType(EngineOperationEvent.class);
+    private static final EventType LOADER_EVENTS = EventType.getEventType(LoaderPhaseEvent.class);
+
+    private final boolean enabled;
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    GameMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /** The metrics of this process. */
+    public static GameMetrics global() {
+        return GLOBAL;
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /** Returns the histogram of a name, creating it on first use. */
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        return histogram != null ? histogram : histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    /** Records a duration that started at a {@link System#nanoTime} reading. */
+    public void recordSince(String name, long startNanos) {
+        if (enabled) {
+            histogram(name).record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Starts timing an engine operation; close the timer when it is done.
+     *
+     * @param location Where the player is, for the flight recording.
+     */
+    public Timer time(String operation, String location) {
+        if (!enabled) {
+            return NOT_TIMED;
+        }
+        EngineOperationEvent event = null;
+        if (OPERATION_EVENTS.isEnabled()) {
+            event = new EngineOperationEvent();
+            event.operation = operation;
+            event.location = location;
+            event.begin();
+        }
+        return new Timer(histogram(operation), event);
+    }
+
+    /**
+     * Starts timing a phase of loading the world.
+     *
+     * @param phase E.g. "parse locations".
+     * @param file The file the phase works on.
+     */
+    public Timer timeLoad(String phase, String file) {
+        if (!enabled) {
+            return NOT_TIMED;
+        }
+        LoaderPhaseEvent event = null;
+        if (LOADER_EVENTS.isEnabled()) {
+            event = new LoaderPhaseEvent();
+            event.phase = phase;
+            event.file = file;
+            event.begin();
+        }
+        return new Timer(histogram(phase), event);
+    }
+
+    /**
+     * Times one operation into a histogram and, while a recording runs, a
+     * flight recorder event. Meant for try-with-resources.
+     */
+    public static final class Timer implements AutoCloseable {
+        private final LatencyHistogram histogram;
+        private final jdk.jfr.Event event;   // null when no recording takes it
+        private final long start = System.nanoTime();
+
+        private Timer(LatencyHistogram histogram, jdk.jfr.Event event) {
+            this.histogram = histogram;
+            this.event = event;
+        }
+
+        @Override
+        public void close() {
+            if (histogram != null) {
+                histogram.record(System.nanoTime() - start);
+                if (event != null) {
+                    event.commit();
+                }
+            }
+        }
+    }
+
+    /** The histograms recorded so far, by name. */
+    public Map<String, LatencyHistogram> getHistograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    /**
+     * Formats every histogram as one line of a table: count, mean, median,
+     * 90th and 99th percentile and maximum.
+     */
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.ROOT, "%-28s %9s %9s %9s %9s %9s %9s",
+            "operation", "count", "mean", "p50", "p90", "p99", "max"));
+        getHistograms().forEach((name, h) -> lines.add(String.format(Locale.ROOT, "%-28s %9d %9s %9s %9s %9s %9s",
+            name, h.getCount(), duration(h.getMean()), duration(h.getPercentile(0.5)),
+            duration(h.getPercentile(0.9)), duration(h.getPercentile(0.99)), duration(h.getMax()))));
+        return lines;
+    }
+
+    static String duration(long nanos) {
+        if (nanos < 10_000) {
+            return nanos + "ns";
+        }
+        if (nanos < 10_000_000) {
+            return String.format(Locale.ROOT, "%.1fus", nanos / 1e3);
+        }
+        if (nanos < 10_000_000_000L) {
+            return String.format(Locale.ROOT, "%.1fms", nanos / 1e6);
+        }
+        return String.format(Locale.ROOT, "%.1fs", nanos / 1e9);
+    }
+}
@@ -0,0 +1,91 @@
+// File: GameRandom.java
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small seedable random source for one game, using the SplitMix64
+ * generator that also backs java.util.SplittableRandom. Unlike Random it
+ * has no synchronization or compare-and-set on its seed, and unlike
+ * SplittableRandom its whole state is one long that can be read and
+ * restored, so a saved game carries on with exactly the numbers it would
+ * have drawn. A generator belongs to one thread; {@link #split} hands out
+ * independent streams, for other systems or other threads.
+ */
+public final class GameRandom {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final AtomicLong SEEDS = new AtomicLong(System.nanoTime());
+
+    private long state;
+
+    public GameRandom(long seed) {
+        this.state = seed;
+    }
+
+    /**
+     * Returns a seed that differs on every call, for games that are not
+     * meant to be replayed.
+     */
+    public static long freshSeed() {
+        return mix64(SEEDS.getAndAdd(GOLDEN_GAMMA) ^ System.nanoTime());
+    }
+
+    /**
+     * Derives a stream from a seed and a stream number. The same pair
+     * always gives the same stream, and different numbers give unrelated
+     * streams.
+     */
+    public static GameRandom stream(long seed, int stream) {
+        return new GameRandom(mix64(seed + (stream + 1) * GOLDEN_GAMMA));
+    }
+
+    /**
+     * Returns a new generator seeded from this one; the two streams do not
+     * overlap in practice.
+     */
+    public GameRandom split() {
+        return new GameRandom(mix64(nextLong()));
+    }
+
+    public long getState() { return state; }
+    public void setState(long state) { this.state = state; }
+
+    public long nextLong() {
+        return mix64(state += GOLDEN_GAMMA);
+    }
+
+    public int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+
+    /**
+     * Returns a uniformly distributed int from 0 up to, not including, bound.
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive: " + bound);
+        }
+        int r = nextInt();
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return r & m;
+        }
+        // Rejects the top partial range so every value is equally likely.
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = nextInt() >>> 1) {
+        }
+        return r;
+    }
+
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
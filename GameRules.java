@@ -0,0 +1,123 @@
+// File: GameRules.java
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The balance numbers of the game. The defaults are the values the game
+ * ships with; other rule sets are built with {@link #with} or parsed from
+ * "name=value" pairs, so a simulation can try a change before it is made
+ * in the code. Rule sets are immutable and can be shared between engines.
+ */
+public final class GameRules {
+
+    /** A tunable number and its shipped value. */
+    public enum Rule {
+        INITIAL_ENERGY(100),
+        /** Scales the energy cost of every connection, in percent. */
+        MOVE_COST_PERCENT(100),
+        COMBAT_ENERGY_COST(15),
+        SEARCH_ENERGY_COST(5),
+        /** Points for defeating an enemy. */
+        DEFEAT_SCORE(100),
+        /** Scales every mission reward, in percent. */
+        MISSION_REWARD_PERCENT(100),
+        /** Scales the attack power of every enemy, in percent. */
+        ENEMY_ATTACK_PERCENT(100),
+        MISSIONS_TO_WIN(5),
+        SCORE_TO_WIN(1000);
+
+        final int defaultValue;
+
+        Rule(int defaultValue) {
+            this.defaultValue = defaultValue;
+        }
+    }
+
+    public static final GameRules DEFAULT = new GameRules(defaults());
+
+    private final int[] values;
+
+    private GameRules(int[] values) {
+        this.values = values;
+    }
+
+    private static int[] defaults() {
+        Rule[] rules = Rule.values();
+        int[] values = new int[rules.length];
+        for (Rule rule : rules) {
+            values[rule.ordinal()] = rule.defaultValue;
+        }
+        return values;
+    }
+
+    public int get(Rule rule) {
+        return values[rule.ordinal()];
+    }
+
+    /**
+     * Returns a copy of these rules with one value changed.
+     */
+    public GameRules with(Rule rule, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException(rule + " must not be negative: " + value);
+        }
+        int[] copy = values.clone();
+        copy[rule.ordinal()] = value;
+        return new GameRules(copy);
+    }
+
+    /**
+     * Applies "name=value" assignments to these rules. Names are the rule
+     * names in any case, e.g. "combat_energy_cost=12".
+     *
+     * @throws IllegalArgumentException If an assignment is malformed.
+     */
+    public GameRules with(String... assignments) {
+        GameRules rules = this;
+        for (String assignment : assignments) {
+            int equals = assignment.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected name=value: " + assignment);
+            }
+            Rule rule;
+            int value;
+            try {
+                rule = Rule.valueOf(assignment.substring(0, equals).trim().toUpperCase(Locale.ROOT));
+                value = Integer.parseInt(assignment.substring(equals + 1).trim());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Bad rule " + assignment + "; known rules: "
+                    + Arrays.toString(Rule.values()), e);
+            }
+            rules = rules.with(rule, value);
+        }
+        return rules;
+    }
+
+    /** Applies a percentage rule to a base value. */
+    int scale(Rule rule, int base) {
+        return (int) ((long) base * get(rule) / 100);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof GameRules && Arrays.equals(values, ((GameRules) o).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Rule rule : Rule.values()) {
+            if (text.length() > 0) {
+                text.append(", ");
+            }
+            text.append(rule.name().toLowerCase(Locale.ROOT)).append('=').append(get(rule));
+        }
+        return text.toString();
+    }
+}
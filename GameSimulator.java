@@ -0,0 +1,161 @@
+// File: GameSimulator.java
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays many games without a window to check the balance of the rules.
+ * All threads share one world; each reuses one engine, restarting it
+ * between games. Game number i is always played with a seed
+ * derived from the base seed and i, so a run gives the same totals on any
+ * number of threads.
+ */
+public class GameSimulator {
+    /** Games handed to a thread at a time. */
+    private static final int BATCH = 64;
+
+    private final GameData world;
+    private final GameRules rules;
+    private final SimulationPolicy policy;
+    private final int maxTurns;
+
+    /**
+     * @param world The world to play in, shared by every thread.
+     * @param rules The rules to play by.
+     * @param policy Chooses the simulated player's actions.
+     * @param maxTurns Turns after which an unfinished game is abandoned.
+     */
+    public GameSimulator(GameData world, GameRules rules, SimulationPolicy policy, int maxTurns) {
+        this.world = world.share();
+        this.rules = rules;
+        this.policy = policy;
+        this.maxTurns = maxTurns;
+    }
+
+    /**
+     * Plays games 0 to {@code games - 1}.
+     *
+     * @param games The number of games.
+     * @param seed The base seed of the run.
+     * @param threads The number of threads to play on.
+     * @return The merged totals.
+     */
+    public SimulationStats run(long games, long seed, int threads) throws InterruptedException {
+        AtomicLong next = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<SimulationStats>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> play(next, games, seed)));
+            }
+            SimulationStats total = new SimulationStats(maxTurns);
+            for (Future<SimulationStats> result : results) {
+                total.merge(result.get());
+            }
+            return total;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private SimulationStats play(AtomicLong next, long games, long seed) {
+        GameEngine engine = new GameEngine(world, new HeadlessGUI(null), rules, seed);
+        engine.setCombatLog(CombatResolver.Verbosity.QUIET);
+        engine.setMetrics(GameMetrics.NONE);
+        SimulationStats stats = new SimulationStats(maxTurns);
+        engine.addListener(new GameEventListener() {
+            @Override
+            public void enemyChanged(int locationId, int enemyId, int health) {
+                Location location = world.locations.get(world.locationIds.nameOf(locationId));
+                if (location != null && enemyId >= 0 && enemyId < location.getEnemyCount()) {
+                    stats.fight(location.getEnemyName(enemyId), health == SaveCodec.REMOVED, engine.getEnergy() <= 0);
+                }
+            }
+        });
+
+        for (long first; (first = next.getAndAdd(BATCH)) < games; ) {
+            long last = Math.min(games, first + BATCH);
+            for (long game = first; game < last; game++) {
+                long gameSeed = GameRandom.mix64(seed + game);
+                engine.reseed(gameSeed);
+                GameRandom policyRandom = GameRandom.stream(gameSeed, GameEngine.STREAM_COUNT);
+                engine.restartGame();
+                stats.turnPlayed(0, engine.getEnergy());
+
+                int turn = 0;
+                while (turn < maxTurns && !engine.isFinished()
+                        && policy.act(engine, world, policyRandom, turn)) {
+                    turn++;
+                    stats.turnPlayed(turn, engine.getEnergy());
+                }
+                stats.gameEnded(engine.hasWon(), engine.isFinished() && !engine.hasWon(), turn);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Runs a simulation and prints its report.
+     *
+     * Usage: java -Djava.awt.headless=true GameSimulator [games=N] [seed=S]
+     *        [threads=T] [turns=MAX] [policy=random|mission|FILE] [rule=value ...]
+     *
+     * A policy that is not one of the built-in names is a script of commands,
+     * one per line. Any other name=value pair overrides a rule, e.g.
+     * combat_energy_cost=12; see {@link GameRules.Rule}.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        long games = 100_000;
+        long seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int turns = 200;
+        String policyName = "mission";
+        List<String> ruleArgs = new ArrayList<>();
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("games=")) {
+                games = Long.parseLong(value);
+            } else if (arg.startsWith("seed=")) {
+                seed = Long.parseLong(value);
+            } else if (arg.startsWith("threads=")) {
+                threads = Integer.parseInt(value);
+            } else if (arg.startsWith("turns=")) {
+                turns = Integer.parseInt(value);
+            } else if (arg.startsWith("policy=")) {
+                policyName = value;
+            } else {
+                ruleArgs.add(arg);
+            }
+        }
+
+        GameRules rules = GameRules.DEFAULT.with(ruleArgs.toArray(new String[0]));
+        SimulationPolicy policy;
+        if (policyName.equals("random")) {
+            policy = SimulationPolicy.RANDOM;
+        } else if (policyName.equals("mission")) {
+            policy = SimulationPolicy.MISSION;
+        } else {
+            policy = SimulationPolicy.scripted(Files.readAllLines(Paths.get(policyName), StandardCharsets.UTF_8));
+        }
+
+        System.out.println("Rules: " + rules);
+        System.out.println("Policy: " + policyName + ", seed " + seed + ", " + threads + " thread(s)");
+        long start = System.nanoTime();
+        SimulationStats stats = new GameSimulator(HeadlessRunner.loadWorld(), rules, policy, turns)
+            .run(games, seed, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        stats.printTo(System.out);
+        System.out.printf("%d games in %.2f s (%.0f games/s)%n", games, seconds, games / seconds);
+    }
+}
@@ -0,0 +1,142 @@
+// File: GraphTraversal.java
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Reusable, non-recursive traversal over a ConnectionGraph. The visited set
+ * and the explicit stack/queue are kept between runs, so once they have
+ * grown to the size of the graph a traversal allocates nothing and never
+ * touches the thread stack. Not thread-safe; give each engine its own.
+ */
+public class GraphTraversal {
+
+    public enum Mode { DFS, BFS }
+
+    /** Unlimited depth for {@link #traverse}. */
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    /**
+     * Called once for every node reached, including the start node.
+     */
+    public interface Visitor {
+        /**
+         * @param node The id of the reached node.
+         * @param depth The number of edges between the start node and this node.
+         * @return False to stop the traversal early.
+         */
+        boolean visit(int node, int depth);
+    }
+
+    private final BitSet visited = new BitSet();
+    private int[] nodes = new int[64];   // DFS stack of nodes / BFS queue
+    private int[] cursors = new int[64]; // DFS next edge per frame / BFS depth
+
+    /**
+     * Visits every node reachable from {@code start} within {@code maxDepth}
+     * edges. DFS reaches nodes in the same order as a recursive depth-first
+     * search; BFS reaches them in order of distance.
+     *
+     * @param graph The graph to walk.
+     * @param start The start node id.
+     * @param mode DFS or BFS.
+     * @param maxDepth The deepest level to visit, or {@link #NO_LIMIT}.
+     * @param visitor The callback for each reached node.
+     * @return The number of nodes visited.
+     */
+    public int traverse(ConnectionGraph graph, int start, Mode mode, int maxDepth, Visitor visitor) {
+        visited.clear();
+        if (start < 0) {
+            return 0;
+        }
+        return mode == Mode.DFS
+            ? depthFirst(graph, start, maxDepth, visitor)
+            : breadthFirst(graph, start, maxDepth, visitor);
+    }
+
+    /**
+     * Returns the nodes reached by the last traversal. The set is reused by
+     * the next call, so copy it if it needs to outlive that.
+     */
+    public BitSet visited() {
+        return visited;
+    }
+
+    private int depthFirst(ConnectionGraph graph, int start, int maxDepth, Visitor visitor) {
+        visited.set(start);
+        int count = 1;
+        if (!visitor.visit(start, 0)) {
+            return count;
+        }
+        int top = 0;
+        nodes[top] = start;
+        cursors[top] = graph.firstEdge(start);
+        top++;
+
+        while (top > 0) {
+            int frame = top - 1;
+            int node = nodes[frame];
+            int edge = cursors[frame];
+            if (frame >= maxDepth || edge >= graph.endEdge(node)) {
+                top--;
+                continue;
+            }
+            cursors[frame] = edge + 1;
+
+            int next = graph.target(edge);
+            if (visited.get(next)) {
+                continue;
+            }
+            visited.set(next);
+            count++;
+            if (!visitor.visit(next, top)) {
+                return count;
+            }
+            ensureCapacity(top + 1);
+            nodes[top] = next;
+            cursors[top] = graph.firstEdge(next);
+            top++;
+        }
+        return count;
+    }
+
+    private int breadthFirst(ConnectionGraph graph, int start, int maxDepth, Visitor visitor) {
+        visited.set(start);
+        int head = 0;
+        int tail = 0;
+        nodes[tail] = start;
+        cursors[tail] = 0;
+        tail++;
+
+        while (head < tail) {
+            int node = nodes[head];
+            int depth = cursors[head];
+            head++;
+            if (!visitor.visit(node, depth)) {
+                return head;
+            }
+            if (depth >= maxDepth) {
+                continue;
+            }
+            for (int e = graph.firstEdge(node); e < graph.endEdge(node); e++) {
+                int next = graph.target(e);
+                if (!visited.get(next)) {
+                    visited.set(next);
+                    ensureCapacity(tail + 1);
+                    nodes[tail] = next;
+                    cursors[tail] = depth + 1;
+                    tail++;
+                }
+            }
+        }
+        return head;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > nodes.length) {
+            int capacity = Math.max(size, nodes.length * 2);
+            nodes = Arrays.copyOf(nodes, capacity);
+            cursors = Arrays.copyOf(cursors, capacity);
+        }
+    }
+}
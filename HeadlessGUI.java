@@ -0,0 +1,71 @@
+// File: HeadlessGUI.java
+
+import java.io.PrintStream;
+
+/**
+ * A GameGUI without a window. Console messages go to a stream, or nowhere
+ * when the stream is null; the other updates are only remembered, so a game
+ * can be played from a script or a simulation without loading any AWT
+ * classes.
+ */
+public class HeadlessGUI implements GameGUI {
+    private final PrintStream out;
+    private int energy;
+    private int score;
+    private String location;
+    private String mission;
+    private boolean gameOver;
+    private boolean victory;
+
+    /**
+     * @param out Where console messages are printed, or null to drop them.
+     */
+    public HeadlessGUI(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void appendToConsole(String message) {
+        if (out != null) {
+            out.println(message);
+        }
+    }
+
+    @Override
+    public void updateEnergyBar(int energy) {
+        this.energy = energy;
+    }
+
+    @Override
+    public void gameOver() {
+        gameOver = true;
+        appendToConsole("Game Over! You've run out of energy.");
+    }
+
+    @Override
+    public void victory() {
+        victory = true;
+    }
+
+    @Override
+    public void updateLocation(String location) {
+        this.location = location;
+    }
+
+    @Override
+    public void updateScore(int score) {
+        this.score = score;
+    }
+
+    @Override
+    public void updateMission(String missionText) {
+        this.mission = missionText;
+    }
+
+    public int getEnergy() { return energy; }
+    public int getScore() { return score; }
+    public String getLocation() { return location; }
+    public String getMission() { return mission; }
+    public boolean isGameOver() { return gameOver; }
+    public boolean isVictory() { return victory; }
+}
@@ -0,0 +1,136 @@
+// File: HeadlessRunner.java
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * Plays the game without a window. Commands are read one per line from a
+ * script file, or from standard input when no file is given, and run
+ * through the same GameCommands as the Swing window. Lines starting with
+ * '#' are skipped; "quit" stops early. The run ends when the game is won or
+ * lost, or when the input runs out.
+ *
+ * With --batch the script runs through {@link GameCommands#executeBatch}:
+ * no output until the end, for long QA and regression scripts.
+ *
+ * Usage: java -Djava.awt.headless=true HeadlessRunner [--batch] [script]
+ */
+public class HeadlessRunner {
+    static final String WORLD_IMAGE = "world.img";
+    static final String[] WORLD_FILES =
+        {"locations.txt", "connections.txt", "enemies.txt", "properties.txt"};
+
+    private final GameEngine engine;
+    private final GameCommands commands;
+    private final HeadlessGUI gui;
+    private int commandCount;
+
+    public HeadlessRunner(GameData data, HeadlessGUI gui) {
+        this.gui = gui;
+        this.engine = new GameEngine(data, gui);
+        this.commands = new GameCommands(data, engine, gui);
+    }
+
+    /** Starts the game at Earth. */
+    public void start() {
+        engine.startGame("earth");
+    }
+
+    /**
+     * Runs commands until the input ends, a quit command, or the end of the
+     * game.
+     */
+    public void run(BufferedReader in) throws IOException {
+        String line;
+        while (!engine.isFinished() && (line = in.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.equalsIgnoreCase("quit") || line.equalsIgnoreCase("exit")) {
+                break;
+            }
+            gui.appendToConsole("> " + line);
+            commands.execute(line);
+            commandCount++;
+        }
+    }
+
+    /**
+     * Runs a whole script quietly, at full speed.
+     */
+    public void runBatch(BufferedReader in) throws IOException {
+        commandCount += commands.executeBatch(in);
+    }
+
+    public GameEngine getEngine() { return engine; }
+    public int getCommandCount() { return commandCount; }
+
+    /**
+     * Loads the world from the compiled image if it is current, otherwise
+     * from the text files.
+     */
+    static GameData loadWorld() throws IOException {
+        if (WorldImage.isUpToDate(WORLD_IMAGE, WORLD_FILES)) {
+            try {
+                return WorldImage.open(WORLD_IMAGE);
+            } catch (IOException e) {
+                System.err.println("Ignoring world image " + WORLD_IMAGE + ": " + e.getMessage());
+            }
+        }
+        GameData data = new GameData();
+        LoadReport report = new WorldLoader().load(data,
+            WORLD_FILES[0], WORLD_FILES[1], WORLD_FILES[2], WORLD_FILES[3]);
+        if (report.hasProblems()) {
+            report.printTo(System.err);
+        }
+        return data;
+    }
+
+    public static void main(String[] args) {
+        HeadlessRunner runner;
+        try {
+            runner = new HeadlessRunner(loadWorld(), new HeadlessGUI(System.out));
+        } catch (IOException e) {
+            System.err.println("Error loading game data: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        boolean batch = args.length > 0 && args[0].equals("--batch");
+        String script = args.length > (batch ? 1 : 0) ? args[batch ? 1 : 0] : null;
+        MetricsDumper metrics = MetricsDumper.fromSystemProperties(null);
+        runner.start();
+        long start = System.nanoTime();
+        try (BufferedReader in = new BufferedReader(script != null
+                ? new FileReader(script) : new InputStreamReader(System.in))) {
+            if (batch) {
+                runner.runBatch(in);
+            } else {
+                runner.run(in);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading commands: " + e.getMessage());
+        }
+
+        GameEngine engine = runner.getEngine();
+        try {
+            engine.closeJournal();
+        } catch (IOException e) {
+            System.err.println("Error closing save journal: " + e.getMessage());
+        }
+        if (metrics != null) {
+            metrics.close();
+        }
+        String outcome = engine.hasWon() ? "won" : engine.isFinished() ? "lost" : "unfinished";
+        System.out.println("Result: " + outcome + " after " + runner.getCommandCount() + " commands"
+            + ", score " + engine.getScore() + ", energy " + engine.getEnergy()
+            + ", " + engine.getVisitedLocations().size() + " locations visited");
+        if (batch) {
+            long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            System.out.println("Ran " + runner.getCommandCount() + " commands in " + millis + " ms ("
+                + runner.getCommandCount() * 1000L / millis + " commands/s)");
+        }
+    }
+}
@@ -0,0 +1,209 @@
+// File: ImageService.java
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Loads location images scaled to display size. Decoding and scaling run on
+ * background threads; the results are kept in a bounded LRU cache, so
+ * showing an image that has been loaded or prefetched before is a map
+ * lookup. Images found in an AssetPack at the right size are copied out of
+ * it without decoding; otherwise an image file may have any extension
+ * ImageIO can read.
+ */
+public class ImageService implements AutoCloseable {
+    // Cached for names that have no image file, so they are not searched again.
+    private static final BufferedImage MISSING = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+    private final File directory;
+    private final AssetPack pack;
+    private final int width;
+    private final int height;
+    private final Map<String, BufferedImage> cache;
+    private final Map<String, CompletableFuture<BufferedImage>> loading = new HashMap<>();
+    private final ExecutorService decoders;
+
+    public ImageService(File directory, int width, int height, int capacity) {
+        this(directory, null, width, height, capacity);
+    }
+
+    /**
+     * @param directory The directory holding one image per location name.
+     * @param pack Pre-scaled images to use before decoding files, or null.
+     * @param width The display width to scale to.
+     * @param height The display height to scale to.
+     * @param capacity The number of scaled images to keep.
+     */
+    public ImageService(File directory, AssetPack pack, int width, int height, int capacity) {
+        this.directory = directory;
+        this.pack = pack;
+        this.width = width;
+        this.height = height;
+        this.cache = new LinkedHashMap<String, BufferedImage>(capacity, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+                return size() > capacity;
+            }
+        };
+        int threads = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+        this.decoders = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "image-decoder");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the scaled image if it is already cached, without blocking.
+     *
+     * @return The image, or null if it is not cached or does not exist.
+     */
+    public synchronized BufferedImage getIfCached(String name) {
+        BufferedImage image = cache.get(name);
+        return image == MISSING ? null : image;
+    }
+
+    /**
+     * Returns the scaled image, decoding it in the background if needed.
+     * Concurrent requests for the same image share one decode.
+     *
+     * @return Completes with the image, or with null if there is none.
+     */
+    public synchronized CompletableFuture<BufferedImage> load(String name) {
+        if (cache.containsKey(name)) {
+            BufferedImage image = cache.get(name);
+            return CompletableFuture.completedFuture(image == MISSING ? null : image);
+        }
+        CompletableFuture<BufferedImage> future = loading.get(name);
+        if (future == null) {
+            future = CompletableFuture.supplyAsync(() -> decode(name), decoders);
+            loading.put(name, future);
+            future.whenComplete((image, error) -> finished(name, image));
+        }
+        return future;
+    }
+
+    /**
+     * Starts loading images that are likely to be shown next.
+     */
+    public void prefetch(Collection<String> names) {
+        for (String name : names) {
+            load(name);
+        }
+    }
+
+    private synchronized void finished(String name, BufferedImage image) {
+        loading.remove(name);
+        cache.put(name, image != null ? image : MISSING);
+    }
+
+    private BufferedImage decode(String name) {
+        if (pack != null && pack.contains(name, width, height)) {
+            return pack.image(name);
+        }
+        File file = resolve(directory, name);
+        if (file == null) {
+            return null;
+        }
+        try {
+            return decodeScaled(file, width, height);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error loading image " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Finds the image file for a name under any suffix ImageIO can read.
+     *
+     * @return The file, or null if there is none.
+     */
+    static File resolve(File directory, String name) {
+        for (String suffix : ImageIO.getReaderFileSuffixes()) {
+            File file = new File(directory, name + "." + suffix);
+            if (file.isFile()) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decodes an image file and scales it to the given size. The result is
+     * TYPE_3BYTE_BGR, or TYPE_4BYTE_ABGR when the file has transparency.
+     *
+     * @return The image, or null if no reader understands the file.
+     */
+    static BufferedImage decodeScaled(File file, int width, int height) throws IOException {
+        BufferedImage source = read(file, width, height);
+        return source != null ? scale(source, width, height) : null;
+    }
+
+    // Decodes only every n-th pixel when the file is several times larger
+    // than the display size, which skips most of the decode work.
+    private static BufferedImage read(File file, int width, int height) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int step = Math.max(1, Math.min(reader.getWidth(0) / (2 * width), reader.getHeight(0) / (2 * height)));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Halves the image until it is within twice the target size, then
+    // draws it at the target size, which keeps downscaling smooth.
+    private static BufferedImage scale(BufferedImage image, int width, int height) {
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_4BYTE_ABGR : BufferedImage.TYPE_3BYTE_BGR;
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= width && current.getHeight() / 2 >= height) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2, type);
+        }
+        return draw(current, width, height, type);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, int type) {
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    @Override
+    public void close() {
+        decoders.shutdownNow();
+    }
+}
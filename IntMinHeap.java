@@ -0,0 +1,117 @@
+// File: IntMinHeap.java
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of node ids keyed by int priorities, with decrease-key.
+ * Everything lives in primitive arrays sized to the node count, so pushes
+ * and pops never allocate.
+ */
+public class IntMinHeap {
+    private static final int ABSENT = -1;
+
+    private final int[] heap;       // heap slot -> node
+    private final int[] keys;       // node -> priority
+    private final int[] positions;  // node -> heap slot, ABSENT when not queued
+    private int size;
+
+    public IntMinHeap(int nodeCount) {
+        heap = new int[nodeCount];
+        keys = new int[nodeCount];
+        positions = new int[nodeCount];
+        Arrays.fill(positions, ABSENT);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int node) {
+        return positions[node] != ABSENT;
+    }
+
+    public int peekKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * Queues a node, or lowers its priority if it is already queued with a
+     * higher one.
+     *
+     * @param node The node id.
+     * @param key The priority.
+     */
+    public void offer(int node, int key) {
+        int slot = positions[node];
+        if (slot == ABSENT) {
+            slot = size++;
+            heap[slot] = node;
+            positions[node] = slot;
+        } else if (key >= keys[node]) {
+            return;
+        }
+        keys[node] = key;
+        siftUp(slot);
+    }
+
+    /**
+     * Removes the node with the lowest priority.
+     *
+     * @return The node id.
+     */
+    public int poll() {
+        int min = heap[0];
+        positions[min] = ABSENT;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    private void siftUp(int slot) {
+        int node = heap[slot];
+        int key = keys[node];
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            int parentNode = heap[parent];
+            if (keys[parentNode] <= key) {
+                break;
+            }
+            heap[slot] = parentNode;
+            positions[parentNode] = slot;
+            slot = parent;
+        }
+        heap[slot] = node;
+        positions[node] = slot;
+    }
+
+    private void siftDown(int slot) {
+        int node = heap[slot];
+        int key = keys[node];
+        int half = size >>> 1;
+        while (slot < half) {
+            int child = 2 * slot + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            int childNode = heap[child];
+            if (key <= keys[childNode]) {
+                break;
+            }
+            heap[slot] = childNode;
+            positions[childNode] = slot;
+            slot = child;
+        }
+        heap[slot] = node;
+        positions[node] = slot;
+    }
+}
@@ -0,0 +1,74 @@
+// File: LoadReport.java
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Problems found while loading world files, collected so they can be
+ * reported together once loading has finished instead of one line per
+ * record as they are found.
+ */
+public class LoadReport {
+    private static final int MAX_NAMES_SHOWN = 20;
+
+    private final Map<String, List<String>> danglingReferences = new LinkedHashMap<>();
+    private final List<String> errors = new ArrayList<>();
+
+    /**
+     * Records a reference to a location that does not exist.
+     *
+     * @param source What refers to it, e.g. "connections".
+     * @param locationName The unknown location name.
+     */
+    public void danglingReference(String source, String locationName) {
+        danglingReferences.computeIfAbsent(source, s -> new ArrayList<>()).add(locationName);
+    }
+
+    public void error(String message) {
+        errors.add(message);
+    }
+
+    public void addErrors(List<String> messages) {
+        errors.addAll(messages);
+    }
+
+    public int getProblemCount() {
+        int count = errors.size();
+        for (List<String> names : danglingReferences.values()) {
+            count += names.size();
+        }
+        return count;
+    }
+
+    public boolean hasProblems() {
+        return getProblemCount() > 0;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public Map<String, List<String>> getDanglingReferences() {
+        return danglingReferences;
+    }
+
+    public void printTo(PrintStream out) {
+        danglingReferences.forEach((source, names) -> {
+            StringBuilder sb = new StringBuilder();
+            sb.append(source).append(": ").append(names.size())
+              .append(" reference(s) to unknown locations: ");
+            for (int i = 0; i < names.size() && i < MAX_NAMES_SHOWN; i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(names.get(i));
+            }
+            if (names.size() > MAX_NAMES_SHOWN) {
+                sb.append(", ... (").append(names.size() - MAX_NAMES_SHOWN).append(" more)");
+            }
+            out.println(sb);
+        });
+        errors.forEach(out::println);
+    }
+}
@@ -0,0 +1,24 @@
+// File: LoaderPhaseEvent.java
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event around one phase of loading the world:
+ * parsing a file, or resolving the parsed records into the GameData.
+ */
+@Name("game.LoaderPhase")
+@Label("World Loader Phase")
+@Category("Game")
+@Description("Parsing one world file or resolving parsed records")
+@StackTrace(false)
+class LoaderPhaseEvent extends jdk.jfr.Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("File")
+    String file;
+}
@@ -1,46 +1,214 @@
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.*;
 
+/**
+ * A place in the world, as loaded from the world files. Locations are
+ * shared by every game played in the same GameData and do not change during
+ * play; which enemies a game has defeated is kept in its WorldState.
+ *
+ * The enemies placed here live in an {@link EnemyStore}, normally the one
+ * of the whole world, and the location keeps only their indices there.
+ */
 public class Location implements Serializable {
     private static final long serialVersionUID = 1L;
-    private final String name;
+
+    // Written with the fields locations had when they held Enemy objects,
+    // so saves from then still read.
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("name", String.class),
+        new ObjectStreamField("description", String.class),
+        new ObjectStreamField("enemies", List.class),
+        new ObjectStreamField("properties", Map.class)
+    };
+
+    private String name;
     private String description;
-    private final List<Enemy> enemies;
-    private boolean visited;
-    private final Map<String, String> properties;
+    private transient EnemyStore store;         // null until an enemy is added
+    private transient IntList enemies;          // store index by enemy id, null while there are none
+    private Map<String, String> properties;
+    private transient PropertyIndex propertyIndex;
+    private transient int id = -1;
+    private transient volatile EnemyRoster roster;   // built on first use
 
     public Location(String name) {
         this.name = name.toLowerCase();
-        this.enemies = new ArrayList<>();
-        this.visited = false;
         this.properties = new HashMap<>();
     }
 
+    /**
+     * Creates a location whose enemies go into a shared store.
+     *
+     * @param store Usually the store of the world, see GameData#getEnemyStore.
+     * @param id The location's id, recorded with each enemy in the store.
+     */
+    public Location(String name, EnemyStore store, int id) {
+        this(name);
+        this.store = store;
+        this.id = id;
+    }
+
     public String getName() { return name; }
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
-    public boolean isVisited() { return visited; }
-    public void setVisited(boolean visited) { this.visited = visited; }
-    
-    public List<Enemy> getEnemies() { return new ArrayList<>(enemies); }
-    public void addEnemy(Enemy enemy) { enemies.add(enemy); }
-    public void removeEnemy(Enemy enemy) { enemies.remove(enemy); }
-    public boolean hasEnemies() { return !enemies.isEmpty(); }
+
+    /**
+     * The enemies placed here, with the health each was placed with (full
+     * for a loaded world), as a read-only view.
+     */
+    public List<Enemy> getEnemies() {
+        return new AbstractList<Enemy>() {
+            @Override
+            public Enemy get(int enemyId) {
+                Objects.checkIndex(enemyId, getEnemyCount());
+                return getEnemy(enemyId);
+            }
+
+            @Override
+            public int size() {
+                return getEnemyCount();
+            }
+        };
+    }
+
+    /**
+     * Places a copy of an enemy here, with its current health. The enemy's
+     * data goes into this location's store unless the entry there already
+     * holds it; the enemy passed in is left as it was.
+     *
+     * @return The placed enemy's id; {@link #getEnemy} makes a handle to it.
+     */
+    public int addEnemy(Enemy enemy) {
+        EnemyStore target = store();
+        int index = enemy.getIndex();
+        if (enemy.getStore() != target || target.health(index) != enemy.getCurrentHealth()) {
+            index = target.addCopy(enemy.getStore(), index, enemy.getCurrentHealth(), id);
+        }
+        return place(index);
+    }
+
+    /**
+     * Places a new enemy at full health here.
+     *
+     * @return Its enemy id.
+     */
+    public int addEnemy(String name, int health, int attackPower) {
+        return place(store().add(name, health, attackPower, id));
+    }
+
+    private EnemyStore store() {
+        if (store == null) {
+            store = new EnemyStore(2);
+        }
+        return store;
+    }
+
+    private int place(int index) {
+        if (enemies == null) {
+            enemies = new IntList(2);
+        }
+        enemies.add(index);
+        roster = null;
+        return enemies.size() - 1;
+    }
+
+    /**
+     * The name index of the enemies placed here. Games share a world from
+     * several threads; two threads that build it at once build the same
+     * thing, so either result may be kept.
+     */
+    EnemyRoster getRoster() {
+        EnemyRoster built = roster;
+        if (built == null) {
+            built = new EnemyRoster(getEnemies());
+            roster = built;
+        }
+        return built;
+    }
+
+    /**
+     * Returns the template enemy with the given id, as a new handle into the
+     * store, or null if there is no such enemy.
+     */
+    public Enemy getEnemy(int enemyId) {
+        return enemyId >= 0 && enemyId < getEnemyCount() ? store.get(enemies.get(enemyId), enemyId) : null;
+    }
+
+    /** The name of an enemy placed here, without making a handle. */
+    String getEnemyName(int enemyId) { return store.name(enemies.get(enemyId)); }
+
+    /** The full health of an enemy placed here, without making a handle. */
+    int getEnemyMaxHealth(int enemyId) { return store.maxHealth(enemies.get(enemyId)); }
+
+    /** Number of enemies placed here; enemy ids run from 0 to this value. */
+    public int getEnemyCount() { return enemies != null ? enemies.size() : 0; }
     
-    public void addProperty(String key, String value) { properties.put(key, value); }
+    public int getId() { return id; }
+
+    /**
+     * Registers this location in a property index under the given id. Existing
+     * properties are indexed immediately and later ones by addProperty.
+     */
+    public void attachIndex(PropertyIndex index, int id) {
+        this.propertyIndex = index;
+        this.id = id;
+        properties.forEach((key, value) -> index.add(key, value, id));
+    }
+
+    public void addProperty(String key, String value) {
+        String previous = properties.put(key, value);
+        if (propertyIndex != null) {
+            if (previous != null) {
+                propertyIndex.remove(key, previous, id);
+            }
+            propertyIndex.add(key, value, id);
+        }
+    }
     public String getProperty(String key) { return properties.get(key); }
     public Map<String, String> getAllProperties() { return new HashMap<>(properties); }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("name", name);
+        fields.put("description", description);
+        fields.put("enemies", new ArrayList<>(getEnemies()));
+        fields.put("properties", properties);
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        name = (String) fields.get("name", null);
+        description = (String) fields.get("description", null);
+        properties = (Map<String, String>) fields.get("properties", null);
+        if (properties == null) {
+            properties = new HashMap<>();
+        }
+        id = -1;
+        List<Enemy> saved = (List<Enemy>) fields.get("enemies", null);
+        if (saved != null) {
+            for (Enemy enemy : saved) {
+                addEnemy(enemy);
+            }
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("Location: ").append(name)
           .append("\nDescription: ").append(description);
         
-        if (!enemies.isEmpty()) {
+        if (getEnemyCount() > 0) {
             sb.append("\nEnemies present: ");
-            enemies.forEach(enemy -> sb.append("\n- ").append(enemy.getName()));
+            for (int e = 0; e < getEnemyCount(); e++) {
+                sb.append("\n- ").append(getEnemyName(e));
+            }
         }
         
         if (!properties.isEmpty()) {
@@ -0,0 +1,284 @@
+// File: LocationIds.java
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Interning table that gives every location name a dense integer id.
+ * Ids are handed out in first-seen order starting at 0 and never change,
+ * so they can index plain arrays such as the adjacency in ConnectionGraph.
+ * Each distinct name is stored exactly once.
+ *
+ * A table opened from a world image starts out with its hash slots copied
+ * from the image and its names still encoded in the mapped file; a name is
+ * only decoded into a String when it is first asked for.
+ */
+public class LocationIds implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final long EMPTY = -1L;
+
+    private String[] names;   // id -> name, null while still only in the image
+    private long[] slots;     // open addressing: hash << 32 | id, EMPTY when free
+    private int size;
+    private transient ByteBuffer imageNames;    // UTF-8 names from a world image
+    private transient IntBuffer imageOffsets;  // id -> start in imageNames, size + 1 entries
+    private transient int imageSize;
+
+    public LocationIds() {
+        this(16);
+    }
+
+    public LocationIds(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        names = new String[Math.max(4, expectedSize)];
+        slots = new long[capacity];
+        Arrays.fill(slots, EMPTY);
+    }
+
+    /**
+     * Creates a table over the names of a world image.
+     *
+     * @param nameBytes The UTF-8 bytes of all names back to back.
+     * @param nameOffsets The start of each name in nameBytes, plus the end.
+     * @param slotTable The hash slots written by {@link #slotTable()}.
+     * @param count The number of names.
+     */
+    static LocationIds fromImage(ByteBuffer nameBytes, IntBuffer nameOffsets, long[] slotTable, int count) {
+        LocationIds ids = new LocationIds(0);
+        ids.names = new String[Math.max(4, count)];
+        ids.slots = slotTable;
+        ids.size = count;
+        ids.imageNames = nameBytes;
+        ids.imageOffsets = nameOffsets;
+        ids.imageSize = count;
+        return ids;
+    }
+
+    /** The raw hash slots, for writing into a world image. */
+    long[] slotTable() {
+        return slots;
+    }
+
+    /**
+     * Returns the id of the given name, assigning the next free id if the
+     * name has not been seen before.
+     *
+     * @param name The (already normalised) location name.
+     * @return The id of the name.
+     */
+    public int intern(String name) {
+        int hash = name.hashCode();
+        int slot = probe(name, hash);
+        if (slots[slot] != EMPTY) {
+            return (int) slots[slot];
+        }
+        int id = size++;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, names.length * 2);
+        }
+        names[id] = name;
+        slots[slot] = entry(hash, id);
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * Looks up the id of a name without interning it.
+     *
+     * @param name The location name.
+     * @return The id, or -1 if the name is unknown.
+     */
+    public int idOf(String name) {
+        if (name == null) {
+            return -1;
+        }
+        long entry = slots[probe(name, name.hashCode())];
+        return entry == EMPTY ? -1 : (int) entry;
+    }
+
+    /**
+     * Interns a name straight from raw bytes, lower-casing it on the way, so
+     * loaders only create a String the first time a name is seen. Non-ASCII
+     * names are decoded as UTF-8 and go through {@link #intern(String)}.
+     *
+     * @param bytes The buffer holding the name.
+     * @param start The absolute index of the first byte.
+     * @param end The absolute index after the last byte.
+     * @return The id of the name.
+     */
+    public int intern(ByteBuffer bytes, int start, int end) {
+        if (!isAscii(bytes, start, end)) {
+            return intern(decodeLower(bytes, start, end));
+        }
+        int slot = probe(bytes, start, end);
+        if (slots[slot] != EMPTY) {
+            return (int) slots[slot];
+        }
+        byte[] lower = new byte[end - start];
+        for (int i = 0; i < lower.length; i++) {
+            lower[i] = (byte) toLower(bytes.get(start + i));
+        }
+        return intern(new String(lower, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Looks up a name given as raw bytes, ignoring ASCII case.
+     *
+     * @return The id, or -1 if the name is unknown.
+     */
+    public int idOf(ByteBuffer bytes, int start, int end) {
+        if (!isAscii(bytes, start, end)) {
+            return idOf(decodeLower(bytes, start, end));
+        }
+        long entry = slots[probe(bytes, start, end)];
+        return entry == EMPTY ? -1 : (int) entry;
+    }
+
+    public String nameOf(int id) {
+        String name = names[id];
+        if (name == null && id < imageSize) {
+            name = decodeImageName(id);
+            names[id] = name;
+        }
+        return name;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void rehash(int capacity) {
+        long[] newSlots = new long[capacity];
+        Arrays.fill(newSlots, EMPTY);
+        int mask = capacity - 1;
+        for (long entry : slots) {
+            if (entry != EMPTY) {
+                int slot = mix((int) (entry >>> 32)) & mask;
+                while (newSlots[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                newSlots[slot] = entry;
+            }
+        }
+        slots = newSlots;
+    }
+
+    // Slot holding the matching entry, or the empty slot where it would go.
+    // The stored hash is compared first so most probes never touch a name.
+    private int probe(String name, int hash) {
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        long entry;
+        while ((entry = slots[slot]) != EMPTY) {
+            if ((int) (entry >>> 32) == hash && nameEquals((int) entry, name)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int probe(ByteBuffer bytes, int start, int end) {
+        int hash = asciiLowerHash(bytes, start, end);
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        int length = end - start;
+        long entry;
+        while ((entry = slots[slot]) != EMPTY) {
+            if ((int) (entry >>> 32) == hash) {
+                String name = nameOf((int) entry);
+                if (name.length() == length && matches(name, bytes, start)) {
+                    return slot;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static long entry(int hash, int id) {
+        return ((long) hash << 32) | id;
+    }
+
+    // Compares without decoding names that are still only in the image.
+    private boolean nameEquals(int id, String name) {
+        String known = names[id];
+        if (known != null || id >= imageSize) {
+            return name.equals(known);
+        }
+        int start = imageOffsets.get(id);
+        int length = imageOffsets.get(id + 1) - start;
+        if (length != name.length() || !isAscii(imageNames, start, start + length)) {
+            return name.equals(nameOf(id));
+        }
+        for (int i = 0; i < length; i++) {
+            if (imageNames.get(start + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String decodeImageName(int id) {
+        int start = imageOffsets.get(id);
+        byte[] bytes = new byte[imageOffsets.get(id + 1) - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = imageNames.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean matches(String name, ByteBuffer bytes, int start) {
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != toLower(bytes.get(start + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAscii(ByteBuffer bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Same value as String.hashCode of the lower-cased name.
+    private static int asciiLowerHash(ByteBuffer bytes, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + toLower(bytes.get(i));
+        }
+        return hash;
+    }
+
+    private static String decodeLower(ByteBuffer bytes, int start, int end) {
+        byte[] raw = new byte[end - start];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = bytes.get(start + i);
+        }
+        return new String(raw, StandardCharsets.UTF_8).toLowerCase();
+    }
+
+    private static int toLower(byte b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+
+    // Murmur3 finalizer: sequential names have nearly sequential String
+    // hashes, which would form long runs under linear probing.
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+}
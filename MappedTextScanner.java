@@ -0,0 +1,259 @@
+// File: MappedTextScanner.java
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a text file line by line straight out of a memory-mapped window,
+ * without creating a String per line. After {@link #nextLine()} the current
+ * line is the byte range {@code [lineStart(), lineEnd())} of {@link #buffer()},
+ * already trimmed the same way as {@link String#trim()}. Line breaks may be
+ * \n, \r or \r\n, as with BufferedReader.readLine.
+ *
+ * Files larger than the window are mapped piece by piece; the window is
+ * always moved so that the current line is fully inside it. A scanner can
+ * also run over a buffer that is already mapped, such as one chunk of a
+ * file being loaded in parallel.
+ */
+public class MappedTextScanner implements Closeable {
+    private static final int DEFAULT_WINDOW = 256 << 20;
+
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final long fileSize;
+    private final int windowSize;
+    private ByteBuffer window;
+    private long windowStart;
+    private int windowLimit;
+    private int position;       // next unread byte in the window
+    private int lineStart;
+    private int lineEnd;
+    private byte[] scratch = new byte[256];
+
+    public MappedTextScanner(String filename) throws IOException {
+        this(filename, DEFAULT_WINDOW);
+    }
+
+    public MappedTextScanner(String filename, int windowSize) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        this.ownsChannel = true;
+        this.fileSize = channel.size();
+        this.windowSize = windowSize;
+        map(0, windowSize);
+    }
+
+    /**
+     * Scans an open channel from the given offset to the end of the file.
+     * The channel is left open on close.
+     */
+    public MappedTextScanner(FileChannel channel, long start) throws IOException {
+        this.channel = channel;
+        this.ownsChannel = false;
+        this.fileSize = channel.size();
+        this.windowSize = DEFAULT_WINDOW;
+        map(start, windowSize);
+    }
+
+    /**
+     * Scans the remaining bytes of a buffer, from its position to its limit.
+     * Line offsets are absolute indices into that buffer.
+     */
+    public MappedTextScanner(ByteBuffer buffer) {
+        this.channel = null;
+        this.ownsChannel = false;
+        this.window = buffer;
+        this.fileSize = buffer.limit();
+        this.windowSize = buffer.limit();
+        this.windowLimit = buffer.limit();
+        this.position = buffer.position();
+    }
+
+    /**
+     * Advances to the next line.
+     *
+     * @return False at end of file.
+     */
+    public boolean nextLine() throws IOException {
+        if (windowStart + position >= fileSize) {
+            return false;
+        }
+        int end = findLineEnd(position);
+        while (end < 0) {
+            // The line runs past the window: remap starting at the line.
+            long remaining = fileSize - (windowStart + position);
+            int size = windowLimit - position < windowSize ? windowSize : (windowLimit - position) * 2;
+            if (size < 0) {
+                throw new IOException("Line too long at byte " + (windowStart + position));
+            }
+            map(windowStart + position, (int) Math.min(size, remaining));
+            end = findLineEnd(0);
+        }
+
+        int start = position;
+        int next = end;
+        if (next < windowLimit) {
+            next++;
+            if (window.get(end) == '\r' && next < windowLimit && window.get(next) == '\n') {
+                next++;
+            } else if (window.get(end) == '\r' && next == windowLimit && windowStart + next < fileSize) {
+                // \r\n split across the window edge; remap and look again.
+                map(windowStart + start, windowLimit - start + 1);
+                return rescanCurrent();
+            }
+        }
+        position = next;
+        setTrimmed(start, end);
+        return true;
+    }
+
+    /**
+     * Like {@link #nextLine()}, but fails if the file ends first.
+     */
+    public void requireLine() throws IOException {
+        if (!nextLine()) {
+            throw new EOFException("Unexpected end of file");
+        }
+    }
+
+    public ByteBuffer buffer() { return window; }
+
+    /** The file offset of the first byte after the current line. */
+    public long position() { return windowStart + position; }
+
+    public int lineStart() { return lineStart; }
+    public int lineEnd() { return lineEnd; }
+    public boolean isBlank() { return lineStart == lineEnd; }
+
+    /**
+     * Finds a byte in the current line.
+     *
+     * @return Its absolute index in the buffer, or -1.
+     */
+    public int indexOf(byte b) {
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (window.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the last occurrence of a byte in the current line.
+     *
+     * @return Its absolute index in the buffer, or -1.
+     */
+    public int lastIndexOf(byte b) {
+        for (int i = lineEnd - 1; i >= lineStart; i--) {
+            if (window.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Decodes the current line as UTF-8. */
+    public String line() {
+        return decode(lineStart, lineEnd);
+    }
+
+    /** Decodes part of the current window as UTF-8, trimmed. */
+    public String decode(int start, int end) {
+        while (start < end && (window.get(start) & 0xff) <= ' ') start++;
+        while (end > start && (window.get(end - 1) & 0xff) <= ' ') end--;
+        int length = end - start;
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = window.get(start + i);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /** Parses the current line as a decimal int. */
+    public int parseInt() {
+        return parseInt(lineStart, lineEnd);
+    }
+
+    /**
+     * Parses a decimal int from part of the window, with the same rules as
+     * Integer.parseInt.
+     */
+    public int parseInt(int start, int end) {
+        if (start >= end) {
+            throw new NumberFormatException("For input string: \"\"");
+        }
+        int i = start;
+        boolean negative = false;
+        byte first = window.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+            if (i == end) {
+                throw new NumberFormatException("For input string: \"" + decode(start, end) + "\"");
+            }
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = window.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("For input string: \"" + decode(start, end) + "\"");
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new NumberFormatException("For input string: \"" + decode(start, end) + "\"");
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("For input string: \"" + decode(start, end) + "\"");
+        }
+        return (int) value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+
+    private boolean rescanCurrent() throws IOException {
+        position = 0;
+        return nextLine();
+    }
+
+    private int findLineEnd(int from) {
+        for (int i = from; i < windowLimit; i++) {
+            byte b = window.get(i);
+            if (b == '\n' || b == '\r') {
+                return i;
+            }
+        }
+        // A line without a terminator is complete only at end of file.
+        return windowStart + windowLimit >= fileSize ? windowLimit : -1;
+    }
+
+    private void setTrimmed(int start, int end) {
+        while (start < end && (window.get(start) & 0xff) <= ' ') start++;
+        while (end > start && (window.get(end - 1) & 0xff) <= ' ') end--;
+        lineStart = start;
+        lineEnd = end;
+    }
+
+    private void map(long start, int size) throws IOException {
+        int length = (int) Math.min(size, fileSize - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        windowStart = start;
+        windowLimit = length;
+        position = 0;
+    }
+}
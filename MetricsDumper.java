@@ -0,0 +1,83 @@
+// File: MetricsDumper.java
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the metrics table to a file at a fixed interval and once more on
+ * close. Each dump replaces the file through a rename, so a reader never
+ * sees half a table.
+ */
+public class MetricsDumper implements AutoCloseable {
+    /** The system property naming the dump file. */
+    public static final String FILE_PROPERTY = "game.metrics.file";
+    /** The system property giving the interval in seconds. */
+    public static final String INTERVAL_PROPERTY = "game.metrics.interval";
+    static final long DEFAULT_INTERVAL_SECONDS = 60;
+
+    private final GameMetrics metrics;
+    private final Path file;
+    private final ScheduledExecutorService timer;
+
+    public MetricsDumper(GameMetrics metrics, Path file, long intervalSeconds) {
+        this.metrics = metrics;
+        this.file = file;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(this::dumpQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Starts dumping the global metrics to the file named by
+     * {@value #FILE_PROPERTY}, or to {@code defaultFile} if the property is
+     * not set.
+     *
+     * @param defaultFile May be null to dump only when the property is set.
+     * @return The dumper, or null if there is nowhere to dump.
+     */
+    public static MetricsDumper fromSystemProperties(String defaultFile) {
+        String name = System.getProperty(FILE_PROPERTY, defaultFile);
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        long interval = Long.getLong(INTERVAL_PROPERTY, DEFAULT_INTERVAL_SECONDS);
+        return new MetricsDumper(GameMetrics.global(), Path.of(name), Math.max(1, interval));
+    }
+
+    /** Writes the table now. */
+    public synchronized void dump() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# " + Instant.now());
+        lines.addAll(metrics.report());
+        Path absolute = file.toAbsolutePath();
+        Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void dumpQuietly() {
+        try {
+            dump();
+        } catch (IOException e) {
+            System.err.println("Error writing metrics to " + file + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        timer.shutdown();
+        dumpQuietly();
+    }
+}
@@ -11,7 +11,6 @@ public class Mission implements Serializable {
     private final String targetEnemy;
     private final String description;
     private final int reward;
-    private boolean completed;
 
     public Mission(String title, String targetLocation, String targetEnemy, 
                   String description, int reward) {
@@ -20,18 +19,19 @@ public class Mission implements Serializable {
         this.targetEnemy = targetEnemy;
         this.description = description;
         this.reward = reward;
-        this.completed = false;
     }
 
+    /**
+     * Tells whether being at a location, having just defeated an enemy,
+     * fulfils this mission. Missions are shared by every game in a world, so
+     * the engine tracks which one a game is on.
+     */
     public boolean isComplete(String currentLocation, Enemy defeatedEnemy) {
-        if (!completed) {
-            boolean locationMatches = currentLocation.equalsIgnoreCase(targetLocation);
-            boolean enemyMatches = targetEnemy == null || 
-                                 (defeatedEnemy != null && 
-                                  targetEnemy.equalsIgnoreCase(defeatedEnemy.getName()));
-            completed = locationMatches && enemyMatches;
-        }
-        return completed;
+        boolean locationMatches = currentLocation.equalsIgnoreCase(targetLocation);
+        boolean enemyMatches = targetEnemy == null || 
+                             (defeatedEnemy != null && 
+                              targetEnemy.equalsIgnoreCase(defeatedEnemy.getName()));
+        return locationMatches && enemyMatches;
     }
 
     public String getTitle() { return title; }
@@ -39,7 +39,6 @@ public class Mission implements Serializable {
     public String getTargetEnemy() { return targetEnemy; }
     public String getDescription() { return description; }
     public int getReward() { return reward; }
-    public boolean isCompleted() { return completed; }
 
     @Override
     public String toString() {
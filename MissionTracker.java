@@ -0,0 +1,195 @@
+// File: MissionTracker.java
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The missions a game has accepted and not yet finished, any number of
+ * them at once. Missions are indexed by target location id and, below
+ * that, by target enemy name, so finding the missions an arrival or a
+ * victory completes is a hash probe or two however many are active.
+ *
+ * Missions are named by their index in GameData.missions, which is also
+ * how saves and the journal record them.
+ */
+public class MissionTracker {
+    private static final int[] NONE = new int[0];
+
+    private final List<Mission> missions;
+    private final LocationIds locationIds;
+    private final BitSet isActive = new BitSet();
+    private int[] active = NONE;   // in the order accepted; replaced, never changed, so it can be shared
+    private final Map<Integer, Targets> byLocation = new HashMap<>();
+
+    // The active missions aimed at one location.
+    private static final class Targets {
+        final IntList arrivals = new IntList(2);   // missions with no target enemy
+        Map<String, IntList> byEnemy;              // lower-case enemy name -> missions, null until needed
+
+        boolean isEmpty() {
+            return arrivals.isEmpty() && (byEnemy == null || byEnemy.isEmpty());
+        }
+    }
+
+    public MissionTracker(GameData world) {
+        this.missions = world.missions;
+        this.locationIds = world.locationIds;
+    }
+
+    /**
+     * Accepts a mission.
+     *
+     * @return false if the mission is already active or there is no
+     *         mission with that index.
+     */
+    public boolean add(int missionIndex) {
+        if (missionIndex < 0 || missionIndex >= missions.size() || isActive.get(missionIndex)) {
+            return false;
+        }
+        Mission mission = missions.get(missionIndex);
+        isActive.set(missionIndex);
+        active = Arrays.copyOf(active, active.length + 1);
+        active[active.length - 1] = missionIndex;
+        Targets targets = byLocation.computeIfAbsent(locationIds.idOf(mission.getTargetLocation()), id -> new Targets());
+        if (mission.getTargetEnemy() == null) {
+            targets.arrivals.addSorted(missionIndex);
+        } else {
+            if (targets.byEnemy == null) {
+                targets.byEnemy = new HashMap<>(4);
+            }
+            targets.byEnemy.computeIfAbsent(mission.getTargetEnemy().toLowerCase(Locale.ROOT), name -> new IntList(2))
+                .addSorted(missionIndex);
+        }
+        return true;
+    }
+
+    /**
+     * Drops a mission, completed or not.
+     *
+     * @return false if it was not active.
+     */
+    public boolean remove(int missionIndex) {
+        if (missionIndex < 0 || !isActive.get(missionIndex)) {
+            return false;
+        }
+        Mission mission = missions.get(missionIndex);
+        isActive.clear(missionIndex);
+        int[] left = new int[active.length - 1];
+        for (int i = 0, j = 0; i < active.length; i++) {
+            if (active[i] != missionIndex) {
+                left[j++] = active[i];
+            }
+        }
+        active = left;
+        int locationId = locationIds.idOf(mission.getTargetLocation());
+        Targets targets = byLocation.get(locationId);
+        if (mission.getTargetEnemy() == null) {
+            targets.arrivals.removeSorted(missionIndex);
+        } else {
+            String enemy = mission.getTargetEnemy().toLowerCase(Locale.ROOT);
+            IntList list = targets.byEnemy.get(enemy);
+            list.removeSorted(missionIndex);
+            if (list.isEmpty()) {
+                targets.byEnemy.remove(enemy);
+            }
+        }
+        if (targets.isEmpty()) {
+            byLocation.remove(locationId);
+        }
+        return true;
+    }
+
+    public void clear() {
+        isActive.clear();
+        active = NONE;
+        byLocation.clear();
+    }
+
+    /** Makes exactly the given missions active, e.g. those of a checkpoint. */
+    public void setAll(int[] missionIndices) {
+        clear();
+        for (int index : missionIndices) {
+            add(index);
+        }
+    }
+
+    /**
+     * The missions that arriving at a location completes: those that ask
+     * for no enemy.
+     *
+     * @return Mission indices in ascending order; empty, without allocating,
+     *         when there are none.
+     */
+    public int[] completedByArrival(int locationId) {
+        Targets targets = byLocation.get(locationId);
+        return targets == null || targets.arrivals.isEmpty() ? NONE : targets.arrivals.toArray();
+    }
+
+    /**
+     * The missions that defeating an enemy at a location completes: those
+     * that ask for that enemy, and those that ask only to be there.
+     *
+     * @return Mission indices, arrival missions first; empty, without
+     *         allocating, when there are none.
+     */
+    public int[] completedByDefeat(int locationId, String enemyName) {
+        Targets targets = byLocation.get(locationId);
+        if (targets == null) {
+            return NONE;
+        }
+        IntList hunted = targets.byEnemy == null || targets.byEnemy.isEmpty() ? null
+            : targets.byEnemy.get(enemyName.toLowerCase(Locale.ROOT));
+        if (hunted == null) {
+            return targets.arrivals.isEmpty() ? NONE : targets.arrivals.toArray();
+        }
+        int[] done = new int[targets.arrivals.size() + hunted.size()];
+        for (int i = 0; i < targets.arrivals.size(); i++) {
+            done[i] = targets.arrivals.get(i);
+        }
+        for (int i = 0; i < hunted.size(); i++) {
+            done[targets.arrivals.size() + i] = hunted.get(i);
+        }
+        return done;
+    }
+
+    public boolean isActive(int missionIndex) {
+        return missionIndex >= 0 && isActive.get(missionIndex);
+    }
+
+    public int size() {
+        return active.length;
+    }
+
+    public boolean isEmpty() {
+        return active.length == 0;
+    }
+
+    /** The mission accepted first of those still active, or null. */
+    public Mission first() {
+        return active.length == 0 ? null : missions.get(active[0]);
+    }
+
+    /**
+     * The indices of the active missions in the order they were accepted.
+     * A change replaces the array rather than writing to it, so a
+     * checkpoint can hold it as it is; callers must not modify it.
+     */
+    public int[] getActive() {
+        return active;
+    }
+
+    /** The active missions in the order they were accepted. */
+    public List<Mission> getMissions() {
+        List<Mission> list = new ArrayList<>(active.length);
+        for (int index : active) {
+            list.add(missions.get(index));
+        }
+        return Collections.unmodifiableList(list);
+    }
+}
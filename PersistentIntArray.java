@@ -0,0 +1,134 @@
+// File: PersistentIntArray.java
+
+/**
+ * An immutable array of ints that starts out all zero and grows as needed.
+ * {@link #set} returns a new array and leaves this one as it was; the two
+ * share everything but the path to the changed element. Elements sit in the
+ * leaves of a trie with 32 entries per node, so a set copies at most a few
+ * 32-entry nodes and keeping an old version costs nothing. Subtrees that
+ * are all zero are not stored.
+ */
+public final class PersistentIntArray {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    public static final PersistentIntArray EMPTY = new PersistentIntArray(null, 0, 0);
+
+    private final Object root;   // int[WIDTH] at the leaves, Object[WIDTH] above; null when all zero
+    private final int shift;     // bits of the index resolved below the root
+    private final int nonZero;
+
+    private PersistentIntArray(Object root, int shift, int nonZero) {
+        this.root = root;
+        this.shift = shift;
+        this.nonZero = nonZero;
+    }
+
+    /** Returns the element at an index; indexes never set read as zero. */
+    public int get(int index) {
+        if (index < 0 || (index >>> shift) >= WIDTH) {
+            return 0;
+        }
+        Object node = root;
+        for (int level = shift; level > 0 && node != null; level -= BITS) {
+            node = ((Object[]) node)[(index >>> level) & MASK];
+        }
+        return node == null ? 0 : ((int[]) node)[index & MASK];
+    }
+
+    /**
+     * Returns an array with one element changed.
+     *
+     * @throws IndexOutOfBoundsException If the index is negative.
+     */
+    public PersistentIntArray set(int index, int value) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Negative index " + index);
+        }
+        if (get(index) == value) {
+            return this;
+        }
+        Object newRoot = root;
+        int newShift = shift;
+        while ((index >>> newShift) >= WIDTH) {
+            if (newRoot != null) {
+                Object[] parent = new Object[WIDTH];
+                parent[0] = newRoot;
+                newRoot = parent;
+            }
+            newShift += BITS;
+        }
+        int delta = value == 0 ? -1 : get(index) == 0 ? 1 : 0;
+        return new PersistentIntArray(set(newRoot, newShift, index, value), newShift, nonZero + delta);
+    }
+
+    private static Object set(Object node, int level, int index, int value) {
+        int slot = (index >>> level) & MASK;
+        if (level == 0) {
+            int[] leaf = node == null ? new int[WIDTH] : ((int[]) node).clone();
+            leaf[slot] = value;
+            return isZero(leaf) ? null : leaf;
+        }
+        Object[] inner = node == null ? new Object[WIDTH] : ((Object[]) node).clone();
+        inner[slot] = set(inner[slot], level - BITS, index, value);
+        return isEmpty(inner) ? null : inner;
+    }
+
+    /** The number of non-zero elements. */
+    public int nonZeroCount() {
+        return nonZero;
+    }
+
+    /**
+     * Returns the first index at or after {@code from} holding a non-zero
+     * element, or -1 if there is none. Skips empty subtrees, so walking all
+     * non-zero elements costs about as much as there are of them.
+     */
+    public int nextNonZero(int from) {
+        if (root == null) {
+            return -1;
+        }
+        return next(root, shift, Math.max(from, 0), 0);
+    }
+
+    private static int next(Object node, int level, int from, int base) {
+        int span = 1 << level;
+        int start = from > base ? (from - base) >>> level : 0;
+        for (int slot = start; slot < WIDTH; slot++) {
+            int slotBase = base + slot * span;
+            if (level == 0) {
+                if (slotBase >= from && ((int[]) node)[slot] != 0) {
+                    return slotBase;
+                }
+            } else {
+                Object child = ((Object[]) node)[slot];
+                if (child != null) {
+                    int found = next(child, level - BITS, from, slotBase);
+                    if (found >= 0) {
+                        return found;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isZero(int[] leaf) {
+        for (int value : leaf) {
+            if (value != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isEmpty(Object[] inner) {
+        for (Object child : inner) {
+            if (child != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
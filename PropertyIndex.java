@@ -0,0 +1,49 @@
+// File: PropertyIndex.java
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Inverted index from a (property key, value) pair to the ids of the
+ * locations that carry it. Each posting list is kept sorted by location id.
+ * Locations keep the index up to date from {@link Location#addProperty}.
+ */
+public class PropertyIndex {
+    private static final IntList NO_MATCHES = new IntList(1);
+
+    private final Map<String, Map<String, IntList>> postings = new HashMap<>();
+
+    public void add(String key, String value, int locationId) {
+        postings.computeIfAbsent(key, k -> new HashMap<>())
+                .computeIfAbsent(value, v -> new IntList(4))
+                .addSorted(locationId);
+    }
+
+    public void remove(String key, String value, int locationId) {
+        Map<String, IntList> values = postings.get(key);
+        if (values == null) {
+            return;
+        }
+        IntList ids = values.get(value);
+        if (ids != null && ids.removeSorted(locationId) && ids.isEmpty()) {
+            values.remove(value);
+            if (values.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the ids of the locations whose property {@code key} equals
+     * {@code value}. The list is owned by the index and must not be changed.
+     *
+     * @param key The property key.
+     * @param value The property value.
+     * @return The matching location ids in ascending order, possibly empty.
+     */
+    public IntList lookup(String key, String value) {
+        Map<String, IntList> values = postings.get(key);
+        IntList ids = values != null ? values.get(value) : null;
+        return ids != null ? ids : NO_MATCHES;
+    }
+}
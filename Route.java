@@ -0,0 +1,35 @@
+// File: Route.java
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A planned route from the current location, as reported to the player.
+ */
+public class Route {
+    private final List<String> stops;
+    private final int energyCost;
+    private final int availableEnergy;
+
+    public Route(List<String> stops, int energyCost, int availableEnergy) {
+        this.stops = Collections.unmodifiableList(stops);
+        this.energyCost = energyCost;
+        this.availableEnergy = availableEnergy;
+    }
+
+    /** The locations along the route, starting with the current one. */
+    public List<String> getStops() { return stops; }
+    public int getJumps() { return stops.size() - 1; }
+    public int getEnergyCost() { return energyCost; }
+    public boolean isAffordable() { return availableEnergy >= energyCost; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.join(" -> ", stops));
+        sb.append("\nJumps: ").append(getJumps())
+          .append(", Energy required: ").append(energyCost)
+          .append(", Energy available: ").append(availableEnergy);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,141 @@
+// File: RoutePlanner.java
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Finds the cheapest route between two locations by energy cost, using
+ * Dijkstra's algorithm over a ConnectionGraph.
+ *
+ * Each source gets a shortest-path tree that is grown only as far as the
+ * queries need: a query for a target the tree has already settled is
+ * answered by walking parent links, otherwise the search resumes from
+ * where it stopped. The most recently used trees are cached, and the whole
+ * cache is dropped as soon as a query arrives for a different graph.
+ */
+public class RoutePlanner {
+    public static final int UNREACHABLE = -1;
+    private static final int DEFAULT_CACHE_SIZE = 4;
+
+    private final Map<Integer, ShortestPathTree> trees;
+    private ConnectionGraph graph;
+
+    public RoutePlanner() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    public RoutePlanner(int cacheSize) {
+        this.trees = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, ShortestPathTree> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Computes the cheapest route from {@code source} to {@code target}.
+     *
+     * @param graph The graph to route over.
+     * @param source The start node id.
+     * @param target The destination node id.
+     * @param path Receives the nodes of the route, source first; cleared first.
+     * @return The total energy cost, or {@link #UNREACHABLE}.
+     */
+    public int findRoute(ConnectionGraph graph, int source, int target, IntList path) {
+        path.clear();
+        int nodeCount = graph.nodeCount();
+        if (source < 0 || target < 0 || source >= nodeCount || target >= nodeCount) {
+            return UNREACHABLE;
+        }
+        if (this.graph != graph) {
+            trees.clear();
+            this.graph = graph;
+        }
+        ShortestPathTree tree = trees.get(source);
+        if (tree == null) {
+            tree = new ShortestPathTree(graph, source);
+            trees.put(source, tree);
+        }
+
+        int cost = tree.settle(target);
+        if (cost != UNREACHABLE) {
+            tree.pathTo(target, path);
+        }
+        return cost;
+    }
+
+    /** Drops every cached tree. */
+    public void invalidate() {
+        trees.clear();
+        graph = null;
+    }
+
+    /**
+     * A Dijkstra search from one source that can be suspended and resumed.
+     */
+    private static final class ShortestPathTree {
+        private final ConnectionGraph graph;
+        private final int[] distance;   // UNREACHABLE until first reached
+        private final int[] parent;
+        private final boolean[] settled;
+        private IntMinHeap frontier;    // released once the search is exhausted
+
+        ShortestPathTree(ConnectionGraph graph, int source) {
+            int nodeCount = graph.nodeCount();
+            this.graph = graph;
+            this.distance = new int[nodeCount];
+            this.parent = new int[nodeCount];
+            this.settled = new boolean[nodeCount];
+            Arrays.fill(distance, UNREACHABLE);
+            distance[source] = 0;
+            parent[source] = -1;
+            frontier = new IntMinHeap(nodeCount);
+            frontier.offer(source, 0);
+        }
+
+        /**
+         * Continues the search until {@code target} is settled or nothing is
+         * left to explore.
+         *
+         * @return The distance to the target, or UNREACHABLE.
+         */
+        int settle(int target) {
+            while (!settled[target] && frontier != null) {
+                if (frontier.isEmpty()) {
+                    frontier = null;
+                    break;
+                }
+                int node = frontier.poll();
+                settled[node] = true;
+                int base = distance[node];
+                for (int e = graph.firstEdge(node); e < graph.endEdge(node); e++) {
+                    int next = graph.target(e);
+                    if (settled[next]) {
+                        continue;
+                    }
+                    int candidate = base + graph.cost(e);
+                    if (candidate < 0) {
+                        candidate = Integer.MAX_VALUE;
+                    }
+                    if (distance[next] == UNREACHABLE || candidate < distance[next]) {
+                        distance[next] = candidate;
+                        parent[next] = node;
+                        frontier.offer(next, candidate);
+                    }
+                }
+            }
+            return settled[target] ? distance[target] : UNREACHABLE;
+        }
+
+        void pathTo(int target, IntList path) {
+            for (int node = target; node != -1; node = parent[node]) {
+                path.add(node);
+            }
+            path.reverse();
+        }
+    }
+}
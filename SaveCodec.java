@@ -0,0 +1,173 @@
+// File: SaveCodec.java
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.BitSet;
+
+/**
+ * Binary save file format. A save holds only what the player has changed;
+ * locations, connections and enemy stats come from the loaded GameData.
+ *
+ * <pre>
+ * int    magic "SAVE"
+ * short  version
+ * int    location count and int edge count of the world it was saved in
+ * UTF    current location
+ * int    energy, score, completed missions
+ * int    index in GameData.missions of the first active mission, or -1
+ * int    word count, then the visited location ids as BitSet words
+ * int    enemy change count, then per change:
+ *        int location id, int enemy id, int health (-1 when removed)
+ * long   seed of the game                                  (version 2)
+ * int    random stream count, then the state of each stream (version 2)
+ * int    count, then the index of each further active mission  (version 3)
+ * </pre>
+ *
+ * Version 1 saves, which have no random streams, and version 2 saves, which
+ * have at most one mission, are still read.
+ */
+public final class SaveCodec {
+    static final int MAGIC = 0x53415645;     // "SAVE"
+    static final int VERSION = 3;
+    /** Health recorded for an enemy that has been defeated and removed. */
+    static final int REMOVED = -1;
+
+    // First two bytes of every ObjectOutputStream, i.e. of old GameState saves.
+    private static final int SERIALIZATION_MAGIC = 0xACED;
+
+    /**
+     * The mutable part of a game, as written to and read from a save file.
+     */
+    static final class Snapshot {
+        int locationCount;
+        int edgeCount;
+        String currentLocation;
+        int energy;
+        int score;
+        int completedMissions;
+        IntList missions = new IntList();       // active mission indices, in the order accepted
+        BitSet visited = new BitSet();
+        IntList enemyChanges = new IntList();   // (location id, enemy id, health) triples
+        long seed;
+        long[] randomStates;                     // null for a version 1 save
+
+        void addEnemyChange(int locationId, int enemyId, int health) {
+            enemyChanges.add(locationId);
+            enemyChanges.add(enemyId);
+            enemyChanges.add(health);
+        }
+    }
+
+    private SaveCodec() {
+    }
+
+    static void write(Snapshot snapshot, DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(snapshot.locationCount);
+        out.writeInt(snapshot.edgeCount);
+        out.writeUTF(snapshot.currentLocation);
+        out.writeInt(snapshot.energy);
+        out.writeInt(snapshot.score);
+        out.writeInt(snapshot.completedMissions);
+        IntList missions = snapshot.missions;
+        out.writeInt(missions.isEmpty() ? -1 : missions.get(0));
+
+        long[] words = snapshot.visited.toLongArray();
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+
+        IntList changes = snapshot.enemyChanges;
+        out.writeInt(changes.size() / 3);
+        for (int i = 0; i < changes.size(); i++) {
+            out.writeInt(changes.get(i));
+        }
+
+        long[] states = snapshot.randomStates != null ? snapshot.randomStates : new long[0];
+        out.writeLong(snapshot.seed);
+        out.writeInt(states.length);
+        for (long state : states) {
+            out.writeLong(state);
+        }
+
+        out.writeInt(Math.max(0, missions.size() - 1));
+        for (int i = 1; i < missions.size(); i++) {
+            out.writeInt(missions.get(i));
+        }
+    }
+
+    /**
+     * Reads a save written by {@link #write}.
+     *
+     * @throws IOException If the data is not a save of a supported version.
+     */
+    static Snapshot read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a save file");
+        }
+        int version = in.readUnsignedShort();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported save file version " + version);
+        }
+        Snapshot snapshot = new Snapshot();
+        snapshot.locationCount = in.readInt();
+        snapshot.edgeCount = in.readInt();
+        snapshot.currentLocation = in.readUTF();
+        snapshot.energy = in.readInt();
+        snapshot.score = in.readInt();
+        snapshot.completedMissions = in.readInt();
+        int missionIndex = in.readInt();
+        if (missionIndex >= 0) {
+            snapshot.missions.add(missionIndex);
+        }
+
+        long[] words = new long[checkCount(in.readInt())];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+        snapshot.visited = BitSet.valueOf(words);
+
+        int changes = checkCount(in.readInt());
+        for (int i = 0; i < changes; i++) {
+            snapshot.addEnemyChange(in.readInt(), in.readInt(), in.readInt());
+        }
+
+        if (version >= 2) {
+            snapshot.seed = in.readLong();
+            snapshot.randomStates = new long[checkCount(in.readInt())];
+            for (int i = 0; i < snapshot.randomStates.length; i++) {
+                snapshot.randomStates[i] = in.readLong();
+            }
+        }
+        if (version >= 3) {
+            int missions = checkCount(in.readInt());
+            for (int i = 0; i < missions; i++) {
+                snapshot.missions.add(in.readInt());
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Tells whether a stream holds an old Java-serialized GameState. The
+     * stream must support mark/reset; it is left at its start.
+     */
+    static boolean isLegacy(InputStream in) throws IOException {
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        return ((first << 8) | second) == SERIALIZATION_MAGIC;
+    }
+
+    private static int checkCount(int count) throws IOException {
+        if (count < 0) {
+            throw new IOException("Corrupt save file");
+        }
+        return count;
+    }
+}
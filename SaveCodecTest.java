@@ -0,0 +1,301 @@
+// File: SaveCodecTest.java
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Round-trips saves through the binary format and the engine: the current
+ * version with several missions, hand-written version 1 and 2 saves,
+ * damaged headers, a save made while a load is read, and an old serialized
+ * GameState. Run from the project
+ * directory with {@code java SaveCodecTest}; exits non-zero on failure.
+ */
+public class SaveCodecTest {
+    private static final String SAVE = "savecodec-test.dat";
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        checkRoundTrip();
+        checkOldVersions();
+        checkDamaged();
+
+        GameData world = HeadlessRunner.loadWorld();
+        try {
+            checkEngineRoundTrip(world);
+            checkSaveWhileReading(world);
+            checkLegacySave(world);
+        } finally {
+            Path file = Paths.get("saves", SAVE);
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(GameJournal.journalFor(file));
+        }
+
+        if (failures > 0) {
+            System.err.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("SaveCodecTest OK");
+        System.exit(0);   // the engines' journal threads are daemons, but be sure
+    }
+
+    private static void checkRoundTrip() throws IOException {
+        SaveCodec.Snapshot snapshot = new SaveCodec.Snapshot();
+        snapshot.locationCount = 40;
+        snapshot.edgeCount = 120;
+        snapshot.currentLocation = "proxima_centauri_b";
+        snapshot.energy = 73;
+        snapshot.score = 450;
+        snapshot.completedMissions = 2;
+        snapshot.missions.add(5);
+        snapshot.missions.add(1);
+        snapshot.missions.add(9);
+        snapshot.visited.set(0);
+        snapshot.visited.set(39);
+        snapshot.visited.set(200);
+        snapshot.addEnemyChange(3, 0, 12);
+        snapshot.addEnemyChange(7, 2, SaveCodec.REMOVED);
+        snapshot.seed = 0x1234_5678_9abcL;
+        snapshot.randomStates = new long[] {1, -2, Long.MAX_VALUE, 0};
+
+        SaveCodec.Snapshot read = SaveCodec.read(input(encode(snapshot)));
+        check(Arrays.equals(encode(read), encode(snapshot)), "a save reads back as written");
+        check(Arrays.equals(read.missions.toArray(), new int[] {5, 1, 9}), "missions keep their order");
+        check(read.visited.equals(snapshot.visited), "visited locations");
+        check(Arrays.equals(read.randomStates, snapshot.randomStates), "random states");
+
+        SaveCodec.Snapshot empty = new SaveCodec.Snapshot();
+        empty.currentLocation = "earth";
+        SaveCodec.Snapshot emptyRead = SaveCodec.read(input(encode(empty)));
+        check(emptyRead.missions.isEmpty(), "no missions reads back as none");
+        check(emptyRead.randomStates.length == 0, "no random states reads back as none");
+    }
+
+    // Versions 1 and 2, written field by field as those builds did.
+    private static void checkOldVersions() throws IOException {
+        for (int version = 1; version <= 2; version++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(SaveCodec.MAGIC);
+            out.writeShort(version);
+            out.writeInt(40);
+            out.writeInt(120);
+            out.writeUTF("mars");
+            out.writeInt(60);
+            out.writeInt(100);
+            out.writeInt(1);
+            out.writeInt(4);              // the one active mission
+            out.writeInt(1);
+            out.writeLong(0b1011L);       // visited ids 0, 1 and 3
+            out.writeInt(1);
+            out.writeInt(2);
+            out.writeInt(0);
+            out.writeInt(SaveCodec.REMOVED);
+            if (version == 2) {
+                out.writeLong(42);
+                out.writeInt(2);
+                out.writeLong(7);
+                out.writeLong(8);
+            }
+            out.flush();
+
+            SaveCodec.Snapshot read = SaveCodec.read(input(bytes.toByteArray()));
+            String v = "version " + version + ": ";
+            check(read.currentLocation.equals("mars") && read.energy == 60 && read.score == 100,
+                v + "location, energy and score");
+            check(Arrays.equals(read.missions.toArray(), new int[] {4}), v + "one mission");
+            check(read.visited.equals(BitSet.valueOf(new long[] {0b1011L})), v + "visited locations");
+            check(Arrays.equals(read.enemyChanges.toArray(), new int[] {2, 0, SaveCodec.REMOVED}), v + "enemy changes");
+            if (version == 1) {
+                check(read.randomStates == null, v + "no random streams");
+            } else {
+                check(read.seed == 42 && Arrays.equals(read.randomStates, new long[] {7, 8}), v + "random streams");
+            }
+        }
+    }
+
+    private static void checkDamaged() throws IOException {
+        SaveCodec.Snapshot snapshot = new SaveCodec.Snapshot();
+        snapshot.currentLocation = "earth";
+        byte[] good = encode(snapshot);
+
+        byte[] magic = good.clone();
+        magic[0] ^= 1;
+        check(fails(magic), "a wrong magic number is refused");
+
+        byte[] newer = good.clone();
+        newer[5] = (byte) (SaveCodec.VERSION + 1);
+        check(fails(newer), "a newer version is refused");
+
+        byte[] zero = good.clone();
+        zero[5] = 0;
+        check(fails(zero), "version 0 is refused");
+
+        byte[] cut = Arrays.copyOf(good, good.length - 3);
+        check(fails(cut), "a cut-off save is refused");
+
+        snapshot.visited.set(5);
+        byte[] negative = encode(snapshot);
+        int words = 4 + 2 + 4 + 4 + 2 + "earth".length() + 4 * 4;   // offset of the visited word count
+        negative[words] = (byte) 0xff;
+        check(fails(negative), "a negative count is refused");
+    }
+
+    private static void checkEngineRoundTrip(GameData world) throws Exception {
+        GameEngine engine = engine(world, 11);
+        engine.startGame("earth");
+        engine.acceptMission(2);
+        engine.acceptMission(0);
+        for (String move : engine.getPossibleMoves()) {
+            engine.moveTo(move);
+            break;
+        }
+        engine.saveGame(SAVE);
+        engine.closeJournal();
+
+        GameEngine loaded = engine(world, 99);
+        loaded.startGame("earth");
+        loaded.loadGame(SAVE);
+        loaded.closeJournal();
+        check(Arrays.equals(encode(loaded.snapshot()), encode(engine.snapshot())), "the engine saves and loads its state");
+        check(loaded.getActiveMissions().equals(engine.getActiveMissions()), "every active mission is restored");
+    }
+
+    // The game is saved to the same file while a load of it is being read;
+    // the file must end up holding the game that was loaded.
+    private static void checkSaveWhileReading(GameData world) throws Exception {
+        GameEngine engine = engine(world, 12);
+        engine.startGame("earth");
+        engine.saveGame(SAVE);
+        engine.moveTo(engine.getPossibleMoves().iterator().next());
+        String loaded = engine.getCurrentLocation();
+        CompletableFuture<GameEngine.SaveFile> reading = engine.readSaveAsync(SAVE);
+        engine.moveTo(engine.getPossibleMoves().iterator().next());
+        CompletableFuture<Void> saving = engine.saveGameAsync(SAVE);
+        engine.applySave(reading.join());
+        saving.join();
+        engine.closeJournal();
+
+        GameEngine reloaded = engine(world, 13);
+        reloaded.startGame("earth");
+        reloaded.loadGame(SAVE);
+        reloaded.closeJournal();
+        check(engine.getCurrentLocation().equals(loaded), "the read save is applied");
+        check(Arrays.equals(encode(reloaded.snapshot()), encode(engine.snapshot())),
+            "a save made while loading does not outlast the load");
+    }
+
+    // A GameState as the builds before the binary format wrote it.
+    private static void checkLegacySave(GameData world) throws Exception {
+        String place = null;
+        String cleared = null;
+        for (String name : world.locations.keySet()) {
+            if (world.locations.get(name).getEnemyCount() > 0) {
+                if (place == null) {
+                    place = name;
+                } else if (cleared == null) {
+                    cleared = name;
+                }
+            }
+        }
+        check(place != null && cleared != null, "two locations have enemies");
+        if (cleared == null) {
+            return;
+        }
+        Enemy original = world.locations.get(place).getEnemy(0);
+        Location copy = new Location(place);
+        Enemy wounded = new Enemy(original.getName(), original.getMaxHealth(), original.getAttackPower());
+        wounded.takeDamage(5);
+        copy.addEnemy(wounded);
+        Map<String, Location> locations = new HashMap<>();
+        locations.put(place, copy);
+        locations.put(cleared, new Location(cleared));
+        Mission mission = world.missions.get(3);
+        GameState state = new GameState(place, 55, 230, mission, Set.of("earth", place), locations);
+
+        Path file = Paths.get("saves", SAVE);
+        Files.createDirectories(file.getParent());
+        Files.deleteIfExists(GameJournal.journalFor(file));
+        try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(file))) {
+            out.writeObject(state);
+        }
+
+        GameEngine engine = engine(world, 5);
+        engine.startGame("earth");
+        engine.loadGame(SAVE);
+        engine.closeJournal();
+        check(engine.getCurrentLocation().equals(place) && engine.getEnergy() == 55 && engine.getScore() == 230,
+            "legacy location, energy and score");
+        check(engine.getActiveMissions().equals(List.of(mission)), "legacy mission matched by title");
+        check(engine.getVisitedLocations().containsAll(Set.of("earth", place)), "legacy visited locations");
+        List<Enemy> here = engine.getEnemiesHere();
+        check(here.size() == 1 && here.get(0).getCurrentHealth() == original.getMaxHealth() - 5,
+            "a wounded enemy keeps its health");
+        int clearedId = world.locationIds.idOf(cleared);
+        IntList changes = engine.snapshot().enemyChanges;
+        int removed = 0;
+        for (int i = 0; i < changes.size(); i += 3) {
+            if (changes.get(i) == clearedId && changes.get(i + 2) == SaveCodec.REMOVED) {
+                removed++;
+            }
+        }
+        check(removed == world.locations.get(cleared).getEnemyCount(), "enemies missing from a legacy save are defeated");
+
+        // Saving again writes the current format, which loads the same.
+        engine.saveGame(SAVE);
+        engine.closeJournal();
+        GameEngine reloaded = engine(world, 6);
+        reloaded.startGame("earth");
+        reloaded.loadGame(SAVE);
+        reloaded.closeJournal();
+        check(Arrays.equals(encode(reloaded.snapshot()), encode(engine.snapshot())), "a legacy game saves again");
+    }
+
+    private static GameEngine engine(GameData world, long seed) {
+        return new GameEngine(world, new HeadlessGUI(new PrintStream(OutputStream.nullOutputStream())),
+            GameRules.DEFAULT, seed);
+    }
+
+    private static byte[] encode(SaveCodec.Snapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        SaveCodec.write(snapshot, out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream input(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    private static boolean fails(byte[] save) {
+        try {
+            SaveCodec.read(input(save));
+            return false;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + what);
+        }
+    }
+}
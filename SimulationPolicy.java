@@ -0,0 +1,97 @@
+// File: SimulationPolicy.java
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides what a simulated player does on each turn. A policy is shared by
+ * every simulation thread, so it keeps no state of its own; anything it
+ * needs comes from the engine, the world and the turn number, or is kept
+ * per thread.
+ */
+public interface SimulationPolicy {
+
+    /**
+     * Takes one turn.
+     *
+     * @param engine The game being played.
+     * @param world The world the engine plays in.
+     * @param random The policy's own random source, seeded per game.
+     * @param turn The number of turns taken so far in this game.
+     * @return false if the player has nothing left to do.
+     */
+    boolean act(GameEngine engine, GameData world, GameRandom random, int turn);
+
+    /**
+     * Fights an enemy in sight half of the time, and otherwise moves to a
+     * random neighbour it can afford.
+     */
+    SimulationPolicy RANDOM = (engine, world, random, turn) -> {
+        List<Enemy> enemies = engine.getEnemiesHere();
+        int combatCost = engine.getRules().get(GameRules.Rule.COMBAT_ENERGY_COST);
+        if (!enemies.isEmpty() && engine.getEnergy() >= combatCost && random.nextBoolean()) {
+            engine.initiateCombat(enemies.get(random.nextInt(enemies.size())));
+            return true;
+        }
+        List<String> moves = new ArrayList<>(engine.getPossibleMoves());
+        while (!moves.isEmpty()) {
+            if (engine.moveTo(moves.remove(random.nextInt(moves.size())))) {
+                return true;
+            }
+        }
+        return false;
+    };
+
+    /**
+     * Travels the cheapest route to the current mission's target and fights
+     * the enemy the mission asks for. Wanders randomly when the target is out
+     * of reach.
+     */
+    SimulationPolicy MISSION = (engine, world, random, turn) -> {
+        Mission mission = engine.getCurrentMission();
+        if (mission == null) {
+            return RANDOM.act(engine, world, random, turn);
+        }
+        String here = engine.getCurrentLocation();
+        if (here.equals(mission.getTargetLocation())) {
+            int combatCost = engine.getRules().get(GameRules.Rule.COMBAT_ENERGY_COST);
+            for (Enemy enemy : engine.getEnemiesHere()) {
+                if (enemy.getName().equalsIgnoreCase(mission.getTargetEnemy()) && engine.getEnergy() >= combatCost) {
+                    engine.initiateCombat(enemy);
+                    return true;
+                }
+            }
+            return RANDOM.act(engine, world, random, turn);
+        }
+        Route route = engine.planRoute(mission.getTargetLocation());
+        if (route != null && route.getStops().size() > 1 && engine.moveTo(route.getStops().get(1))) {
+            return true;
+        }
+        return RANDOM.act(engine, world, random, turn);
+    };
+
+    /**
+     * Replays a list of typed commands, one per turn, then stops. Each
+     * simulation thread keeps one set of commands for its engine, so a
+     * turn builds no command registry; undo reaches back to the start of
+     * the game.
+     */
+    static SimulationPolicy scripted(List<String> commands) {
+        HeadlessGUI silent = new HeadlessGUI(null);
+        ThreadLocal<GameCommands> perThread = new ThreadLocal<>();
+        return (engine, world, random, turn) -> {
+            if (turn >= commands.size()) {
+                return false;
+            }
+            GameCommands typed = perThread.get();
+            if (typed == null || typed.getEngine() != engine) {
+                typed = new GameCommands(world, engine, silent);
+                perThread.set(typed);
+            } else if (turn == 0) {
+                typed.forgetHistory();   // a new game on the same engine
+            }
+            typed.execute(commands.get(turn));
+            return true;
+        };
+    }
+}
@@ -0,0 +1,146 @@
+// File: SimulationStats.java
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Totals over a batch of simulated games. Each simulation thread fills its
+ * own instance without locking; the instances are merged at the end.
+ */
+public class SimulationStats {
+    private final int maxTurns;
+    private long games;
+    private long wins;
+    private long losses;
+    private long victoryTurns;
+    private final long[] victoryTurnCounts;   // games won after exactly t turns
+    private final long[] energySums;          // energy after turn t, over games still playing
+    private final long[] playing;             // games still playing after turn t
+    private final Map<String, long[]> enemies = new TreeMap<>();   // name -> fights, defeated, player lost, player killed
+
+    public SimulationStats(int maxTurns) {
+        this.maxTurns = maxTurns;
+        this.victoryTurnCounts = new long[maxTurns + 1];
+        this.energySums = new long[maxTurns + 1];
+        this.playing = new long[maxTurns + 1];
+    }
+
+    /** Records the player's energy at the end of a turn. */
+    void turnPlayed(int turn, int energy) {
+        energySums[turn] += energy;
+        playing[turn]++;
+    }
+
+    /**
+     * Records the outcome of one fight.
+     *
+     * @param defeated Whether the enemy was defeated.
+     * @param killed Whether the fight left the player without energy.
+     */
+    void fight(String enemy, boolean defeated, boolean killed) {
+        long[] counts = enemies.computeIfAbsent(enemy, name -> new long[4]);
+        counts[0]++;
+        if (defeated) {
+            counts[1]++;
+        } else {
+            counts[2]++;
+        }
+        if (killed) {
+            counts[3]++;
+        }
+    }
+
+    /** Records the end of a game. */
+    void gameEnded(boolean won, boolean lost, int turns) {
+        games++;
+        if (won) {
+            wins++;
+            victoryTurns += turns;
+            victoryTurnCounts[Math.min(turns, maxTurns)]++;
+        } else if (lost) {
+            losses++;
+        }
+    }
+
+    /** Adds another thread's totals into this one. */
+    public void merge(SimulationStats other) {
+        games += other.games;
+        wins += other.wins;
+        losses += other.losses;
+        victoryTurns += other.victoryTurns;
+        for (int t = 0; t <= maxTurns; t++) {
+            victoryTurnCounts[t] += other.victoryTurnCounts[t];
+            energySums[t] += other.energySums[t];
+            playing[t] += other.playing[t];
+        }
+        other.enemies.forEach((name, counts) -> {
+            long[] mine = enemies.computeIfAbsent(name, n -> new long[4]);
+            for (int i = 0; i < mine.length; i++) {
+                mine[i] += counts[i];
+            }
+        });
+    }
+
+    public long getGames() { return games; }
+    public long getWins() { return wins; }
+    public long getLosses() { return losses; }
+
+    public double getWinRate() {
+        return games == 0 ? 0 : (double) wins / games;
+    }
+
+    /** The average number of turns a won game took. */
+    public double getMeanTurnsToVictory() {
+        return wins == 0 ? 0 : (double) victoryTurns / wins;
+    }
+
+    /** The number of turns within which the given fraction of won games ended. */
+    public int turnsToVictoryPercentile(double fraction) {
+        long target = (long) Math.ceil(wins * fraction);
+        long seen = 0;
+        for (int t = 0; t <= maxTurns; t++) {
+            seen += victoryTurnCounts[t];
+            if (seen >= target && seen > 0) {
+                return t;
+            }
+        }
+        return maxTurns;
+    }
+
+    /** The average energy after a turn, over the games still playing then. */
+    public double getMeanEnergy(int turn) {
+        return playing[turn] == 0 ? 0 : (double) energySums[turn] / playing[turn];
+    }
+
+    public void printTo(PrintStream out) {
+        long stalled = games - wins - losses;
+        out.printf("Games: %d  won: %.1f%%  out of energy: %.1f%%  gave up or out of turns: %.1f%%%n",
+            games, percent(wins, games), percent(losses, games), percent(stalled, games));
+        if (wins > 0) {
+            out.printf("Turns to victory: mean %.1f, median %d, 90th percentile %d%n",
+                getMeanTurnsToVictory(), turnsToVictoryPercentile(0.5), turnsToVictoryPercentile(0.9));
+        }
+
+        out.println("Energy by turn (mean over games still playing):");
+        int lastTurn = maxTurns;
+        while (lastTurn > 0 && playing[lastTurn] == 0) {
+            lastTurn--;
+        }
+        int step = Math.max(1, (lastTurn + 9) / 10);
+        for (int t = 0; t <= lastTurn; t += step) {
+            out.printf("  turn %4d: %6.1f  (%d playing)%n", t, getMeanEnergy(t), playing[t]);
+        }
+
+        if (!enemies.isEmpty()) {
+            out.println("Enemies:        fights  defeated  player lost  player out of energy");
+            enemies.forEach((name, counts) -> out.printf("  %-12s %8d  %7.1f%%  %10.1f%%  %19.1f%%%n",
+                name, counts[0], percent(counts[1], counts[0]), percent(counts[2], counts[0]),
+                percent(counts[3], counts[0])));
+        }
+    }
+
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+}
@@ -3,12 +3,11 @@ import javax.swing.border.*;
 import javax.swing.plaf.basic.BasicScrollBarUI;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
 import java.io.*;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.concurrent.CompletionException;
 import javax.imageio.ImageIO;
 
 public class SpaceExplorationAdventure extends JFrame implements GameGUI {
@@ -19,18 +18,33 @@ public class SpaceExplorationAdventure extends JFrame implements GameGUI {
     private static final Color DARKER_BLUE = new Color(100, 149, 237);
     private static final Color BACKGROUND_BLACK = new Color(25, 25, 25);
     private static final Color LIGHT_RED = new Color(255, 99, 71);
+    private static final String WORLD_IMAGE = "world.img";
+    private static final String ASSET_PACK = "images.pack";
+    private static final int CONSOLE_SCROLLBACK_LINES = 5000;
+    private static final long AUTOSAVE_QUIET_MS = 5000;
+    private static final long AUTOSAVE_MAX_DELAY_MS = 30000;
+    private static final String[] WORLD_FILES =
+        {"locations.txt", "connections.txt", "enemies.txt", "properties.txt"};
 
     
     private GameData gameData;
     private GameEngine gameEngine;
+    private AutosaveScheduler autosave;
+    private GameCommands commands;
+    private final AssetPack assets = AssetPack.openIfPresent(ASSET_PACK);
+    private final ImageService locationImages = new ImageService(new File("images"), assets,
+        AssetPack.LOCATION_WIDTH, AssetPack.LOCATION_HEIGHT, 32);
+    private String shownImage;
 
    
     private JTextArea gameConsole;
+    private ConsoleModel console;
     private JTextField commandInput;
     private JLabel locationLabel;
     private JLabel scoreLabel;
     private JLabel missionLabel;
     private JProgressBar energyBar;
+    private JProgressBar loadProgress;
     private JLabel locationImageLabel;
     private JLabel logoLabel;
     private JPanel imagePanel;
@@ -99,8 +113,9 @@ public class SpaceExplorationAdventure extends JFrame implements GameGUI {
         topPanel.setBackground(BACKGROUND_BLACK);
         
         try {
-            Image logoImg = ImageIO.read(new File("logo.jpg"))
-                                 .getScaledInstance(200, 80, Image.SCALE_SMOOTH);
+            Image logoImg = assets != null && assets.contains("logo", 200, 80)
+                ? assets.image("logo")
+                : ImageIO.read(new File("logo.jpg")).getScaledInstance(200, 80, Image.SCALE_SMOOTH);
             logoLabel = new JLabel(new ImageIcon(logoImg));
         } catch (IOException e) {
             logoLabel = new JLabel("Space Exploration Adventure", SwingConstants.CENTER);
@@ -114,6 +129,15 @@ public class SpaceExplorationAdventure extends JFrame implements GameGUI {
         scoreLabel = createStyledLabel("Score: 0");
         energyBar = createStyledProgressBar();
         
+        loadProgress = new JProgressBar();
+        loadProgress.setIndeterminate(true);
+        loadProgress.setString("Loading...");
+        loadProgress.setStringPainted(true);
+        loadProgress.setPreferredSize(new Dimension(120, 20));
+        loadProgress.setVisible(false);
+
+        statsPanel.add(loadProgress);
+        statsPanel.add(Box.createHorizontalStrut(20));
         statsPanel.add(scoreLabel);
         statsPanel.add(Box.createHorizontalStrut(20));
         statsPanel.add(createStyledLabel("Energy:"));
@@ -154,6 +178,7 @@ public class SpaceExplorationAdventure extends JFrame implements GameGUI {
         gameConsole.setBackground(BACKGROUND_BLACK);
         gameConsole.setForeground(LIGHT_RED);
         gameConsole.setMargin(new Insets(10, 10, 10, 10));
+        console = new ConsoleModel(gameConsole, CONSOLE_SCROLLBACK_LINES);
 
         JScrollPane scrollPane = new JScrollPane(gameConsole);
         scrollPane.setBorder(null);
@@ -212,11 +237,22 @@ public class SpaceExplorationAdventure extends JFrame implements GameGUI {
     }
 
     private void loadGameData() {
+        if (WorldImage.isUpToDate(WORLD_IMAGE, WORLD_FILES)) {
+            try {
+                gameData = WorldImage.open(WORLD_IMAGE);
+                return;
+            } catch (IOException e) {
+                System.err.println("Ignoring world image " + WORLD_IMAGE + ": " + e.getMessage());
+            }
+        }
         try {
             gameData = new GameData();
-            gameData.loadLocations("locations.txt");
-            gameData.loadConnections("connections.txt");
-            gameData.loadEnemies("enemies.txt");
+            LoadReport report = new WorldLoader().load(gameData,
+                "locations.txt", "connections.txt", "enemies.txt", "properties.txt");
+            if (report.hasProblems()) {
+                report.printTo(System.err);
+                appendToConsole("Warning: " + report.getProblemCount() + " problem(s) found in the world files.");
+            }
         } catch (IOException e) {
             handleError("Error loading game data", e);
         }
@@ -224,14 +260,33 @@ public class SpaceExplorationAdventure extends JFrame implements GameGUI {
 
     private void initializeGame() {
         gameEngine = new GameEngine(gameData, this);
+        autosave = new AutosaveScheduler(gameEngine, SwingUtilities::invokeLater,
+            AUTOSAVE_QUIET_MS, AUTOSAVE_MAX_DELAY_MS);
+        gameEngine.addListener(autosave);
+        commands = new GameCommands(gameData, gameEngine, this) {
+            @Override
+            protected void save() {
+                handleSaveGame();
+            }
+
+            @Override
+            protected void load() {
+                handleLoadGame();
+            }
+
+            @Override
+            protected void error(String message, Exception e) {
+                handleError(message, e);
+            }
+        };
         gameEngine.startGame("earth");
-        displayGameStatus();
+        commands.displayGameStatus();
     }
 
     private void initializeQuickActions() {
         quickActionButtons.get("Look").addActionListener(e -> processCommand("look"));
-        quickActionButtons.get("Moves").addActionListener(e -> displayPossibleMoves());
-        quickActionButtons.get("Mission").addActionListener(e -> displayGameStatus());
+        quickActionButtons.get("Moves").addActionListener(e -> processCommand("moves"));
+        quickActionButtons.get("Mission").addActionListener(e -> processCommand("status"));
         quickActionButtons.get("Save Game").addActionListener(e -> handleSaveGame());
     }
 
@@ -307,209 +362,51 @@ public class SpaceExplorationAdventure extends JFrame implements GameGUI {
     }
 
     private void processCommand(String command) {
-        if (command == null || command.trim().isEmpty()) return;
-        
-        command = command.trim().toLowerCase();
-        String[] parts = command.split("\\s+");
-        
-        if (parts.length == 0) return;
-        String action = parts[0];
-
-        try {
-            switch (action) {
-                case "move":
-                    handleMoveCommand(parts);
-                    break;
-                case "look":
-                    appendToConsole(gameEngine.getCurrentLocationDescription());
-                    displayPossibleMoves();
-                    break;
-                case "moves":
-                    displayPossibleMoves();
-                    break;
-                case "status":
-                    displayGameStatus();
-                    break;
-                case "fight":
-                    handleFightCommand(parts);
-                    break;
-                case "help":
-                    displayHelp();
-                    break;
-                case "save":
-                    handleSaveGame();
-                    break;
-                case "load":
-                    handleLoadGame();
-                    break;
-                case "search":
-                    handleSearchCommand(parts);
-                    break;
-                default:
-                    appendToConsole("Unknown command. Type 'help' for commands.");
-            }
-        } catch (Exception e) {
-            handleError("Error processing command", e);
-        }
-    }
-
-    private void handleMoveCommand(String[] parts) {
-        if (parts.length < 2) {
-            appendToConsole("Move where? Specify a location.");
-            displayPossibleMoves();
-            return;
-        }
-
-        String destination = parts[1].toLowerCase();
-        Set<String> possibleMoves = gameEngine.getPossibleMoves();
-        
-        if (!possibleMoves.contains(destination)) {
-            appendToConsole("Cannot move to " + destination + " from current location.");
-            displayPossibleMoves();
-            return;
-        }
-
-        if (gameEngine.moveTo(destination)) {
-            appendToConsole("Moved to " + destination);
-            
-            
-            Mission currentMission = gameEngine.getCurrentMission();
-            if (currentMission != null && 
-                currentMission.getTargetLocation().equalsIgnoreCase(destination) && 
-                currentMission.getTargetEnemy() == null) {
-                
-                appendToConsole("\n🎯 You've reached the mission target location!");
-                if (!currentMission.isCompleted()) {
-                    appendToConsole("Mission will complete automatically...");
-                }
-            }
-        } else {
-            appendToConsole("Failed to move to " + destination + " (insufficient energy?)");
-            displayPossibleMoves();
-        }
-    }
-
-    private void handleFightCommand(String[] parts) {
-        if (parts.length < 2) {
-            appendToConsole("Fight what? Specify an enemy.");
-            return;
-        }
-
-        String enemyName = parts[1];
-        Location currentLoc = gameData.locations.get(gameEngine.getCurrentLocation());
-        
-        if (currentLoc != null) {
-            Optional<Enemy> enemy = currentLoc.getEnemies().stream()
-                .filter(e -> e.getName().toLowerCase().contains(enemyName))
-                .findFirst();
-                
-            if (enemy.isPresent()) {
-                gameEngine.initiateCombat(enemy.get());
-            } else {
-                appendToConsole("No such enemy here: " + enemyName);
-            }
-        }
-    }
-
-    private void handleSearchCommand(String[] parts) {
-        if (parts.length < 3) {
-            appendToConsole("Usage: search <property> <value>");
-            return;
-        }
-
-        String property = parts[1];
-        String value = parts[2];
-        List<String> locations = gameEngine.searchLocationsDFS(property, value);
-        
-        if (locations == null || locations.isEmpty()) {
-            appendToConsole("No locations found with " + property + " = " + value);
-        } else {
-            appendToConsole("Found locations:");
-            locations.forEach(loc -> appendToConsole("- " + loc));
-        }
-    }
-
-    private void displayPossibleMoves() {
-        Set<String> moves = gameEngine.getPossibleMoves();
-        if (moves.isEmpty()) {
-            appendToConsole("\nNo available moves from current location!");
-        } else {
-            appendToConsole("\nPossible moves from " + gameEngine.getCurrentLocation() + ":");
-            moves.forEach(move -> appendToConsole("  - " + move));
-        }
-    }
-
-    private void displayGameStatus() {
-        appendToConsole("\nCurrent Status:");
-        appendToConsole("Location: " + gameEngine.getCurrentLocation());
-        appendToConsole("Energy: " + gameEngine.getEnergy());
-        appendToConsole("Score: " + gameEngine.getScore());
-        
-        Mission currentMission = gameEngine.getCurrentMission();
-        if (currentMission != null) {
-            appendToConsole("\nCurrent Mission:");
-            appendToConsole(currentMission.toString());
-        } else {
-            appendToConsole("\nNo active mission. Visit different locations to find missions!");
-        }
-        
-        displayPossibleMoves();
+        commands.execute(command);
     }
 
     private void handleSaveGame() {
-        try {
-            gameEngine.saveGame("savegame.dat");
-            appendToConsole("Game saved successfully!");
-        } catch (IOException e) {
-            handleError("Error saving game", e);
-        }
+        appendToConsole("Saving game...");
+        gameEngine.saveGameAsync(GameCommands.SAVE_FILE).whenComplete((done, error) ->
+            SwingUtilities.invokeLater(() -> {
+                if (error != null) {
+                    handleError("Error saving game", unwrap(error));
+                } else {
+                    appendToConsole("Game saved successfully!");
+                }
+            }));
     }
 
+    // The game stays playable while the save is read; only applying it
+    // at the end happens on the event thread.
     private void handleLoadGame() {
-        try {
-            gameEngine.loadGame("savegame.dat");
-            appendToConsole("Game loaded successfully!");
-        } catch (Exception e) {
-            handleError("Error loading game", e);
-        }
+        loadProgress.setVisible(true);
+        GameEngine engine = gameEngine;
+        engine.readSaveAsync(GameCommands.SAVE_FILE).whenComplete((save, error) ->
+            SwingUtilities.invokeLater(() -> {
+                loadProgress.setVisible(false);
+                if (engine != gameEngine) {
+                    return;
+                }
+                try {
+                    if (error != null) {
+                        throw unwrap(error);
+                    }
+                    engine.applySave(save);
+                    commands.forgetHistory();   // turns taken while reading would undo across the load
+                    appendToConsole("Game loaded successfully!");
+                } catch (Exception e) {
+                    handleError("Error loading game", e);
+                }
+            }));
     }
 
-    private void displayHelp() {
-        appendToConsole("\nAvailable Commands:");
-        appendToConsole("  move <location> - Move to a specified location");
-        appendToConsole("  look           - Examine current location");
-        appendToConsole("  moves          - Show available moves from current location");
-        appendToConsole("  status         - Display current game status");
-        appendToConsole("  fight <enemy>  - Engage in combat with an enemy");
-        appendToConsole("  search <property> <value> - Search for locations");
-        appendToConsole("  save           - Save current game");
-        appendToConsole("  load           - Load saved game");
-        appendToConsole("  help           - Show this help message");
-
-        appendToConsole("\nHow to Complete Missions:");
-        appendToConsole("1. For Exploration Missions (no enemy required):");
-        appendToConsole("   - Simply reach the target location (e.g., 'move titan')");
-        appendToConsole("   - Mission completes automatically on arrival");
-        appendToConsole("   - A new mission is assigned immediately");
-        
-        appendToConsole("\n2. For Combat Missions (enemy required):");
-        appendToConsole("   - Go to the target location (e.g., 'move jupiter')");
-        appendToConsole("   - Fight the specific enemy (e.g., 'fight pirate')");
-        appendToConsole("   - Use only the enemy's simple name (e.g., 'pirate' not 'space pirate')");
-        appendToConsole("   - Mission completes after defeating the right enemy");
-
-        appendToConsole("\nWays to Win:");
-        appendToConsole("1. Complete 5 missions");
-        appendToConsole("2. Reach 1000 points");
-        appendToConsole("3. Discover all critical locations:");
-        appendToConsole("   - Mars, Jupiter, Titan, Proxima Centauri b, Venus");
-        
-        appendToConsole("\nEnergy Costs:");
-        appendToConsole("- Moving: 10 energy");
-        appendToConsole("- Fighting: 15 energy");
-        appendToConsole("- Searching: 5 energy");
-        
-        displayPossibleMoves();
+    private static Exception unwrap(Throwable error) {
+        while ((error instanceof CompletionException
+                || error instanceof UncheckedIOException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error instanceof Exception ? (Exception) error : new Exception(error);
     }
 
     private void handleError(String message, Exception e) {
@@ -521,9 +418,8 @@ public class SpaceExplorationAdventure extends JFrame implements GameGUI {
     
     @Override
     public void appendToConsole(String message) {
-        if (gameConsole != null) {
-            gameConsole.append(message + "\n");
-            gameConsole.setCaretPosition(gameConsole.getDocument().getLength());
+        if (console != null) {
+            console.append(message);
         }
     }
 
@@ -552,14 +448,29 @@ public class SpaceExplorationAdventure extends JFrame implements GameGUI {
         }
     }
 
+    @Override
+    public void victory() {
+        int choice = JOptionPane.showConfirmDialog(this,
+            "Congratulations! You've won the game!\nWould you like to start a new game?",
+            "Victory!",
+            JOptionPane.YES_NO_OPTION);
+            
+        if (choice == JOptionPane.YES_OPTION) {
+            restartGame();
+        } else {
+            System.exit(0);
+        }
+    }
+
     private void restartGame() {
+        autosave.close();
+        gameEngine.closeJournalAsync();   // a snapshot being written must not hold up the window
         
         commandInput.setEnabled(true);
         quickActionButtons.values().forEach(button -> button.setEnabled(true));
-        gameConsole.setText("");
+        console.clear();
         
-        
-        loadGameData();
+        // The world is never changed by play, so the new game reuses it.
         initializeGame();
     }
 
@@ -579,18 +490,29 @@ public class SpaceExplorationAdventure extends JFrame implements GameGUI {
         missionLabel.setText(missionText);
     }
 
+    // Shows a cached image at once; otherwise the image is set when its
+    // background decode finishes, unless the player has moved on by then.
     private void updateLocationImage(String location) {
-        String imagePath = "images/" + location + ".jpg";
-        try {
-            Image img = ImageIO.read(new File(imagePath));
-            locationImageLabel.setIcon(new ImageIcon(img.getScaledInstance(
-                280, 200, Image.SCALE_SMOOTH)));
-        } catch (IOException e) {
+        shownImage = location;
+        BufferedImage cached = locationImages.getIfCached(location);
+        if (cached != null) {
+            locationImageLabel.setIcon(new ImageIcon(cached));
+        } else {
             locationImageLabel.setIcon(null);
+            locationImages.load(location).thenAccept(image -> SwingUtilities.invokeLater(() -> {
+                if (image != null && location.equals(shownImage)) {
+                    locationImageLabel.setIcon(new ImageIcon(image));
+                }
+            }));
+        }
+        if (gameEngine != null) {
+            locationImages.prefetch(gameEngine.getPossibleMoves());
         }
     }
 
     public static void main(String[] args) {
+        MetricsDumper metrics = MetricsDumper.fromSystemProperties("metrics.txt");
+        Runtime.getRuntime().addShutdownHook(new Thread(metrics::close, "metrics-final-dump"));
         SwingUtilities.invokeLater(SpaceExplorationAdventure::new);
     }
 }
\ No newline at end of file
@@ -0,0 +1,411 @@
+// File: WorldFileParser.java
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * First phase of world loading. Splits the text files into chunks that start
+ * and end on record boundaries and parses each chunk into unresolved records.
+ * Names stay as byte ranges into the chunk's mapped buffer until GameData
+ * resolves them on a single thread. Parsing touches no shared state, so any
+ * number of chunks can be parsed at once.
+ */
+public final class WorldFileParser {
+    static final long DEFAULT_CHUNK_SIZE = 64L << 20;
+
+    private WorldFileParser() {
+    }
+
+    /** Records from one chunk of a locations file. */
+    static final class LocationRecords {
+        final ByteBuffer buffer;
+        final IntList names = new IntList();                // start, end
+        final List<String> descriptions = new ArrayList<>();
+
+        LocationRecords(ByteBuffer buffer) { this.buffer = buffer; }
+    }
+
+    /** Records from one chunk of a connections file. */
+    static final class ConnectionRecords {
+        final ByteBuffer buffer;
+        final IntList sources = new IntList();              // start, end, edge count
+        final IntList edges = new IntList();                // start, end, cost
+        final List<String> errors = new ArrayList<>();
+
+        ConnectionRecords(ByteBuffer buffer) { this.buffer = buffer; }
+    }
+
+    /** Records from one chunk of an enemies file. */
+    static final class EnemyRecords {
+        final ByteBuffer buffer;
+        final IntList locations = new IntList();            // start, end
+        final List<String> names = new ArrayList<>();
+        final IntList stats = new IntList();                // health, attack power
+        final List<String> errors = new ArrayList<>();
+
+        EnemyRecords(ByteBuffer buffer) { this.buffer = buffer; }
+    }
+
+    /** Records from one chunk of a properties file. */
+    static final class PropertyRecords {
+        final ByteBuffer buffer;
+        final IntList locations = new IntList();            // start, end, property count
+        final List<String> keys = new ArrayList<>();
+        final List<String> values = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+
+        PropertyRecords(ByteBuffer buffer) { this.buffer = buffer; }
+    }
+
+    /** Parses one chunk into unresolved records. */
+    interface ChunkParser<R> {
+        R parse(ByteBuffer chunk) throws IOException;
+    }
+
+    /**
+     * Splits a file into chunks and parses them one after another on the
+     * calling thread.
+     *
+     * @param linePairs True for files of two-line records without separators.
+     */
+    static <R> List<R> parseFile(String filename, boolean linePairs, ChunkParser<R> parser) throws IOException {
+        List<ByteBuffer> chunks;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long[] offsets = linePairs
+                ? linepairBoundaries(channel, DEFAULT_CHUNK_SIZE, SEQUENTIAL_LINE_COUNTER)
+                : blankLineBoundaries(channel, DEFAULT_CHUNK_SIZE);
+            chunks = map(channel, offsets);
+        }
+        List<R> records = new ArrayList<>(chunks.size());
+        for (ByteBuffer chunk : chunks) {
+            records.add(parser.parse(chunk));
+        }
+        return records;
+    }
+
+    /**
+     * Parses name/description line pairs. The chunk must start on a name line.
+     */
+    static LocationRecords parseLocations(ByteBuffer chunk) throws IOException {
+        LocationRecords records = new LocationRecords(chunk);
+        MappedTextScanner in = new MappedTextScanner(chunk);
+        while (in.nextLine()) {
+            records.names.add(in.lineStart());
+            records.names.add(in.lineEnd());
+            records.descriptions.add(in.nextLine() ? in.line() : null);
+        }
+        return records;
+    }
+
+    /**
+     * Parses blocks of a location name, an edge count, that many target lines
+     * (each optionally followed by an energy cost) and a separator line.
+     *
+     * A cost is the last word of a target line when that word is a number,
+     * so a target whose name ends in a number must be given with a cost:
+     * "sector 12" is sector at cost 12, "sector 12 5" is sector 12 at cost
+     * 5. A negative or too large cost is an error and its edge is skipped.
+     */
+    static ConnectionRecords parseConnections(ByteBuffer chunk) throws IOException {
+        ConnectionRecords records = new ConnectionRecords(chunk);
+        MappedTextScanner in = new MappedTextScanner(chunk);
+        while (in.nextLine()) {
+            if (in.isBlank()) continue;
+
+            int nameStart = in.lineStart();
+            int nameEnd = in.lineEnd();
+            if (!in.nextLine()) {
+                break;
+            }
+
+            int connectionCount;
+            try {
+                connectionCount = in.parseInt();
+            } catch (NumberFormatException e) {
+                records.errors.add("Invalid connection count for " + in.decode(nameStart, nameEnd).toLowerCase());
+                skipToBlankLine(in);
+                continue;
+            }
+
+            int edgeCount = 0;
+            for (int i = 0; i < connectionCount; i++) {
+                if (!in.nextLine()) {
+                    records.errors.add("Unexpected end of file in connections for "
+                        + in.decode(nameStart, nameEnd).toLowerCase());
+                    break;
+                }
+                // An optional cost follows the last space; names may hold
+                // spaces themselves, so a suffix that is not a number is
+                // part of the name.
+                int end = in.lineEnd();
+                int cost = ConnectionGraph.DEFAULT_EDGE_COST;
+                int space = in.lastIndexOf((byte) ' ');
+                if (space > 0 && isNumber(in.buffer(), space + 1, end)) {
+                    try {
+                        cost = in.parseInt(space + 1, end);
+                    } catch (NumberFormatException e) {
+                        cost = -1;
+                    }
+                    if (cost < 0) {
+                        records.errors.add("Invalid connection cost for " + in.decode(nameStart, nameEnd).toLowerCase()
+                            + ": " + in.line());
+                        continue;
+                    }
+                    end = space;
+                    while (end > in.lineStart() && (in.buffer().get(end - 1) & 0xff) <= ' ') {
+                        end--;
+                    }
+                }
+                records.edges.add(in.lineStart());
+                records.edges.add(end);
+                records.edges.add(cost);
+                edgeCount++;
+            }
+            in.nextLine();
+            records.sources.add(nameStart);
+            records.sources.add(nameEnd);
+            records.sources.add(edgeCount);
+        }
+        return records;
+    }
+
+    // Whether bytes are an optional sign and at least one digit.
+    private static boolean isNumber(ByteBuffer buffer, int start, int end) {
+        if (start < end && (buffer.get(start) == '-' || buffer.get(start) == '+')) {
+            start++;
+        }
+        if (start == end) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) < '0' || buffer.get(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses blocks of a location name, an enemy name, health and attack power.
+     */
+    static EnemyRecords parseEnemies(ByteBuffer chunk) throws IOException {
+        EnemyRecords records = new EnemyRecords(chunk);
+        MappedTextScanner in = new MappedTextScanner(chunk);
+        while (in.nextLine()) {
+            if (in.isBlank()) continue;
+
+            int nameStart = in.lineStart();
+            int nameEnd = in.lineEnd();
+            try {
+                in.requireLine();
+                String enemyName = in.line();
+                in.requireLine();
+                int health = in.parseInt();
+                in.requireLine();
+                int attackPower = in.parseInt();
+
+                records.locations.add(nameStart);
+                records.locations.add(nameEnd);
+                records.names.add(enemyName);
+                records.stats.add(health);
+                records.stats.add(attackPower);
+            } catch (NumberFormatException | IOException e) {
+                records.errors.add("Invalid enemy for " + in.decode(nameStart, nameEnd).toLowerCase()
+                    + ": " + e.getMessage());
+                skipToBlankLine(in);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Parses blocks of a location name followed by key=value lines, ended by
+     * a blank line.
+     */
+    static PropertyRecords parseProperties(ByteBuffer chunk) throws IOException {
+        PropertyRecords records = new PropertyRecords(chunk);
+        MappedTextScanner in = new MappedTextScanner(chunk);
+        while (in.nextLine()) {
+            if (in.isBlank()) continue;
+
+            int nameStart = in.lineStart();
+            int nameEnd = in.lineEnd();
+            int count = 0;
+            while (in.nextLine() && !in.isBlank()) {
+                int separator = in.indexOf((byte) '=');
+                if (separator <= in.lineStart()) {
+                    records.errors.add("Invalid property line for "
+                        + in.decode(nameStart, nameEnd).toLowerCase() + ": " + in.line());
+                    continue;
+                }
+                records.keys.add(in.decode(in.lineStart(), separator).toLowerCase());
+                records.values.add(in.decode(separator + 1, in.lineEnd()).toLowerCase());
+                count++;
+            }
+            records.locations.add(nameStart);
+            records.locations.add(nameEnd);
+            records.locations.add(count);
+        }
+        return records;
+    }
+
+    /**
+     * Splits a file whose records are separated by blank lines. Each split
+     * point is moved forward to just after the next blank line.
+     *
+     * @return Chunk offsets; chunk i is [offsets[i], offsets[i + 1]).
+     */
+    static long[] blankLineBoundaries(FileChannel channel, long chunkSize) throws IOException {
+        long size = channel.size();
+        LongList boundaries = new LongList();
+        boundaries.add(0);
+        long previous = 0;
+        for (long split = chunkSize; split < size; split += chunkSize) {
+            if (split <= previous) continue;
+            long boundary = size;
+            try (MappedTextScanner in = new MappedTextScanner(channel, split)) {
+                in.nextLine();                      // rest of a line cut by the split
+                while (in.nextLine()) {
+                    if (in.isBlank()) {
+                        boundary = in.position();
+                        break;
+                    }
+                }
+            }
+            if (boundary >= size) break;
+            boundaries.add(boundary);
+            previous = boundary;
+        }
+        boundaries.add(size);
+        return boundaries.toArray();
+    }
+
+    /**
+     * Splits a file of fixed two-line records. Split points are first moved
+     * to line starts; then the lines before each one are counted, and any
+     * split with an odd number of lines before it moves down one more line.
+     *
+     * @param lineCounts Counts the lines of each mapped chunk; the caller may
+     *                   run it in parallel.
+     * @return Chunk offsets; chunk i is [offsets[i], offsets[i + 1]).
+     */
+    static long[] linepairBoundaries(FileChannel channel, long chunkSize, LineCounter lineCounts)
+            throws IOException {
+        long size = channel.size();
+        LongList boundaries = new LongList();
+        boundaries.add(0);
+        long previous = 0;
+        for (long split = chunkSize; split < size; split += chunkSize) {
+            if (split <= previous) continue;
+            long boundary;
+            try (MappedTextScanner in = new MappedTextScanner(channel, split - 1)) {
+                in.nextLine();                      // ends at the first break at or after split - 1
+                boundary = in.position();
+            }
+            if (boundary >= size) break;
+            boundaries.add(boundary);
+            previous = boundary;
+        }
+        boundaries.add(size);
+        long[] offsets = boundaries.toArray();
+        if (offsets.length <= 2) {
+            return offsets;
+        }
+
+        long[] counts = lineCounts.count(map(channel, offsets));
+        long lines = 0;
+        for (int i = 1; i < offsets.length - 1; i++) {
+            lines += counts[i - 1];
+            if ((lines & 1) != 0) {
+                try (MappedTextScanner in = new MappedTextScanner(channel, offsets[i])) {
+                    in.nextLine();
+                    offsets[i] = Math.min(in.position(), offsets[i + 1]);
+                }
+            }
+        }
+        return offsets;
+    }
+
+    /** Counts the lines in each of a list of chunks. */
+    interface LineCounter {
+        long[] count(List<ByteBuffer> chunks) throws IOException;
+    }
+
+    static final LineCounter SEQUENTIAL_LINE_COUNTER = chunks -> {
+        long[] counts = new long[chunks.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = countLines(chunks.get(i));
+        }
+        return counts;
+    };
+
+    /** Counts lines the way {@link MappedTextScanner#nextLine()} would. */
+    static long countLines(ByteBuffer chunk) {
+        long count = 0;
+        int limit = chunk.limit();
+        for (int i = chunk.position(); i < limit; i++) {
+            byte b = chunk.get(i);
+            if (b == '\n') {
+                count++;
+            } else if (b == '\r') {
+                count++;
+                if (i + 1 < limit && chunk.get(i + 1) == '\n') {
+                    i++;
+                }
+            }
+        }
+        if (limit > chunk.position()) {
+            byte last = chunk.get(limit - 1);
+            if (last != '\n' && last != '\r') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Maps each chunk of a file. Mappings stay valid after the channel closes.
+     */
+    static List<ByteBuffer> map(FileChannel channel, long[] offsets) throws IOException {
+        List<ByteBuffer> chunks = new ArrayList<>(offsets.length - 1);
+        for (int i = 0; i + 1 < offsets.length; i++) {
+            long length = offsets[i + 1] - offsets[i];
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Record block too large at byte " + offsets[i]);
+            }
+            if (length > 0) {
+                chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, offsets[i], length));
+            }
+        }
+        return chunks;
+    }
+
+    private static void skipToBlankLine(MappedTextScanner in) throws IOException {
+        while (in.nextLine() && !in.isBlank()) {
+            // drop the rest of a malformed record
+        }
+    }
+
+    /** Minimal growable long array for chunk offsets. */
+    private static final class LongList {
+        private long[] values = new long[8];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
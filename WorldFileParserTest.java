@@ -0,0 +1,137 @@
+// File: WorldFileParserTest.java
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Checks the connection parser on the text formats world files use: plain
+ * targets, targets with an energy cost, and target names with spaces; that
+ * bad costs are reported as errors; and that connections to unknown
+ * locations are reported, not loaded.
+ * Run with {@code java WorldFileParserTest}; exits non-zero on failure.
+ */
+public class WorldFileParserTest {
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        WorldFileParser.ConnectionRecords records = parse(
+            "earth\n"
+            + "6\n"
+            + "mars\n"
+            + "moon 25\n"
+            + "alpha centauri\n"
+            + "alpha centauri 7\n"
+            + "  kuiper   belt   3  \n"
+            + "sector x12\n"
+            + "\n"
+            + "mars\n"
+            + "1\n"
+            + "earth\n");
+
+        check(records.errors.isEmpty(), "no errors, got " + records.errors);
+        check(records.sources.size() == 6, "two source blocks");
+        check(records.sources.get(2) == 6, "all six edges of earth kept");
+        checkEdge(records, 0, "mars", ConnectionGraph.DEFAULT_EDGE_COST);
+        checkEdge(records, 1, "moon", 25);
+        checkEdge(records, 2, "alpha centauri", ConnectionGraph.DEFAULT_EDGE_COST);
+        checkEdge(records, 3, "alpha centauri", 7);
+        checkEdge(records, 4, "kuiper   belt", 3);
+        checkEdge(records, 5, "sector x12", ConnectionGraph.DEFAULT_EDGE_COST);
+        checkEdge(records, 6, "earth", ConnectionGraph.DEFAULT_EDGE_COST);
+
+        WorldFileParser.ConnectionRecords bad = parse("earth\nmany\nmars\n\nmars\n1\nearth\n");
+        check(bad.errors.size() == 1, "a bad count is reported once");
+        check(bad.sources.size() == 3, "the block after a bad count is still read");
+
+        // A trailing number is always a cost; a name ending in a number
+        // needs a cost after it.
+        WorldFileParser.ConnectionRecords numbered = parse("earth\n2\nsector 12\nsector 12 5\n");
+        checkEdge(numbered, 0, "sector", 12);
+        checkEdge(numbered, 1, "sector 12", 5);
+
+        WorldFileParser.ConnectionRecords negative = parse(
+            "earth\n4\nmars -5\nmoon 99999999999\nvenus +4\nsector -x\n");
+        check(negative.errors.size() == 2, "a negative and an overflowing cost are reported, got " + negative.errors);
+        check(negative.sources.get(2) == 2, "the edges with bad costs are skipped");
+        checkEdge(negative, 0, "venus", 4);
+        checkEdge(negative, 1, "sector -x", ConnectionGraph.DEFAULT_EDGE_COST);
+
+        checkUnknownTargets();
+        checkNegativeCostLoad();
+
+        if (failures > 0) {
+            System.err.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("WorldFileParserTest OK");
+    }
+
+    private static void checkUnknownTargets() throws Exception {
+        Path dir = Files.createTempDirectory("world");
+        try {
+            Path locations = Files.writeString(dir.resolve("locations.txt"),
+                "Earth\nHome.\nMars\nRed.\n");
+            Path connections = Files.writeString(dir.resolve("connections.txt"),
+                "earth\n2\nmars 5\npluto\n\nmars\n1\nearth\n");
+            Path enemies = Files.writeString(dir.resolve("enemies.txt"), "");
+            GameData data = new GameData();
+            LoadReport report = new WorldLoader().load(data, locations.toString(), connections.toString(),
+                enemies.toString(), null);
+
+            List<String> dangling = report.getDanglingReferences().get("connections");
+            check(dangling != null && dangling.contains("pluto"), "pluto reported as dangling, got "
+                + report.getDanglingReferences());
+            check(data.locationIds.idOf("pluto") < 0, "pluto gets no location id");
+            int earth = data.locationIds.idOf("earth");
+            int mars = data.locationIds.idOf("mars");
+            check(data.connections.degree(earth) == 1, "earth keeps only its edge to mars");
+            check(data.connections.cost(data.connections.edgeTo(earth, mars)) == 5, "earth to mars costs 5");
+        } finally {
+            for (String name : new String[] {"locations.txt", "connections.txt", "enemies.txt"}) {
+                Files.deleteIfExists(dir.resolve(name));
+            }
+            Files.delete(dir);
+        }
+    }
+
+    // A bad cost is a load error, not an exception out of the loader.
+    private static void checkNegativeCostLoad() throws Exception {
+        Path dir = Files.createTempDirectory("world");
+        try {
+            Path locations = Files.writeString(dir.resolve("locations.txt"), "Earth\nHome.\nMars\nRed.\n");
+            Path connections = Files.writeString(dir.resolve("connections.txt"), "earth\n1\nmars -5\n");
+            Path enemies = Files.writeString(dir.resolve("enemies.txt"), "");
+            GameData data = new GameData();
+            LoadReport report = new WorldLoader().load(data, locations.toString(), connections.toString(),
+                enemies.toString(), null);
+            check(report.getErrors().size() == 1, "the negative cost is one load error, got " + report.getErrors());
+            check(data.connections.degree(data.locationIds.idOf("earth")) == 0, "earth gets no edge with a bad cost");
+        } finally {
+            for (String name : new String[] {"locations.txt", "connections.txt", "enemies.txt"}) {
+                Files.deleteIfExists(dir.resolve(name));
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private static WorldFileParser.ConnectionRecords parse(String text) throws Exception {
+        return WorldFileParser.parseConnections(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void checkEdge(WorldFileParser.ConnectionRecords records, int edge, String target, int cost) {
+        IntList edges = records.edges;
+        String name = new MappedTextScanner(records.buffer).decode(edges.get(3 * edge), edges.get(3 * edge + 1));
+        check(name.equals(target), "edge " + edge + " target '" + target + "', got '" + name + "'");
+        check(edges.get(3 * edge + 2) == cost, "edge " + edge + " cost " + cost + ", got " + edges.get(3 * edge + 2));
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + what);
+        }
+    }
+}
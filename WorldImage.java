@@ -0,0 +1,708 @@
+// File: WorldImage.java
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Precompiled binary form of a loaded world, so a server can start without
+ * parsing the text files.
+ *
+ * <pre>
+ * header:   magic "SEAWORLD", version, section count,
+ *           per section (id, offset, length, CRC32), CRC32 of the header
+ * NAMES:    count, offsets[count + 1], UTF-8 bytes
+ * ID_TABLE: capacity, hash slots[capacity] as kept by LocationIds
+ * LOCATIONS: count, description start[count], end[count], UTF-8 bytes
+ *           (start -1: the name is not a location; -2: no description)
+ * GRAPH:    node count, edge count, offsets[n + 1], targets[e], costs[e]
+ * ENEMIES:  count, per-location offsets[n + 1], name start[m], end[m],
+ *           health[m], attack power[m], UTF-8 bytes
+ * PROPERTIES: per-location offsets[n + 1], (key, value) string pairs,
+ *           string count, string offsets, UTF-8 bytes
+ * MISSIONS: count, then per mission title, target, enemy flag + name,
+ *           description (modified UTF-8) and reward
+ * </pre>
+ *
+ * All numbers are big-endian and every section starts on an 8-byte
+ * boundary. Opening an image only checks the header checksum and copies
+ * the id table and adjacency arrays; locations, enemies and the property
+ * index are built from the mapped file the first time they are used. Run
+ * {@link #verify} to check every section checksum.
+ */
+public final class WorldImage {
+    static final long MAGIC = 0x534541574F524C44L;   // "SEAWORLD"
+    static final int VERSION = 1;
+
+    static final int NAMES = 1;
+    static final int ID_TABLE = 2;
+    static final int LOCATIONS = 3;
+    static final int GRAPH = 4;
+    static final int ENEMIES = 5;
+    static final int PROPERTIES = 6;
+    static final int MISSIONS = 7;
+    private static final int[] SECTION_ORDER = {NAMES, ID_TABLE, LOCATIONS, GRAPH, ENEMIES, PROPERTIES, MISSIONS};
+    private static final int HEADER_SIZE = 8 + 4 + 4 + SECTION_ORDER.length * 24 + 4;
+
+    private static final int NOT_A_LOCATION = -1;
+    private static final int NO_DESCRIPTION = -2;
+
+    private final ByteBuffer image;
+    private final Map<Integer, ByteBuffer> sections = new HashMap<>();
+    private final Map<Integer, Integer> checksums = new HashMap<>();
+
+    private WorldImage(ByteBuffer image) throws IOException {
+        this.image = image;
+        readHeader();
+    }
+
+    // ---------------------------------------------------------------- writing
+
+    /**
+     * Writes a loaded world to an image file. The file is written under a
+     * temporary name and moved into place once complete.
+     */
+    public static void write(GameData data, String filename) throws IOException {
+        Path target = Paths.get(filename).toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        long[][] table = new long[SECTION_ORDER.length][];
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.position(HEADER_SIZE);
+            for (int i = 0; i < SECTION_ORDER.length; i++) {
+                long start = align(channel);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new NonClosingOutputStream(Channels.newOutputStream(channel)), 1 << 16));
+                writeSection(SECTION_ORDER[i], data, out);
+                out.flush();
+                long length = channel.position() - start;
+                int crc = crc(channel.map(FileChannel.MapMode.READ_ONLY, start, length));
+                table[i] = new long[] {SECTION_ORDER[i], start, length, crc};
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putLong(MAGIC).putInt(VERSION).putInt(SECTION_ORDER.length);
+            for (long[] entry : table) {
+                header.putInt((int) entry[0]).putLong(entry[1]).putLong(entry[2]).putInt((int) entry[3]);
+            }
+            header.putInt(crc(header.duplicate().flip()));
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeSection(int section, GameData data, DataOutputStream out) throws IOException {
+        LocationIds ids = data.locationIds;
+        int count = ids.size();
+        switch (section) {
+            case NAMES: {
+                List<String> names = new ArrayList<>(count);
+                for (int id = 0; id < count; id++) {
+                    names.add(ids.nameOf(id));
+                }
+                out.writeInt(count);
+                writeStrings(names, out);
+                break;
+            }
+            case ID_TABLE: {
+                long[] slots = ids.slotTable();
+                out.writeInt(slots.length);
+                for (long slot : slots) {
+                    out.writeLong(slot);
+                }
+                break;
+            }
+            case LOCATIONS: {
+                out.writeInt(count);
+                List<byte[]> descriptions = new ArrayList<>(count);
+                int[] starts = new int[count];
+                int[] ends = new int[count];
+                int offset = 0;
+                for (int id = 0; id < count; id++) {
+                    Location location = data.locations.get(ids.nameOf(id));
+                    String description = location != null ? location.getDescription() : null;
+                    if (location == null || description == null) {
+                        starts[id] = location == null ? NOT_A_LOCATION : NO_DESCRIPTION;
+                        ends[id] = starts[id];
+                        continue;
+                    }
+                    byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+                    descriptions.add(bytes);
+                    starts[id] = offset;
+                    offset += bytes.length;
+                    ends[id] = offset;
+                }
+                writeInts(starts, out);
+                writeInts(ends, out);
+                out.writeInt(offset);
+                for (byte[] bytes : descriptions) {
+                    out.write(bytes);
+                }
+                break;
+            }
+            case GRAPH: {
+                ConnectionGraph graph = data.connections;
+                int nodes = graph.nodeCount();
+                out.writeInt(nodes);
+                out.writeInt(graph.edgeCount());
+                for (int n = 0; n <= nodes; n++) {
+                    out.writeInt(n < nodes ? graph.firstEdge(n) : graph.edgeCount());
+                }
+                for (int e = 0; e < graph.edgeCount(); e++) {
+                    out.writeInt(graph.target(e));
+                }
+                for (int e = 0; e < graph.edgeCount(); e++) {
+                    out.writeInt(graph.cost(e));
+                }
+                break;
+            }
+            case ENEMIES: {
+                List<Enemy> enemies = new ArrayList<>();
+                int[] offsets = new int[count + 1];
+                for (int id = 0; id < count; id++) {
+                    offsets[id] = enemies.size();
+                    Location location = data.locations.get(ids.nameOf(id));
+                    if (location != null) {
+                        enemies.addAll(location.getEnemies());
+                    }
+                }
+                offsets[count] = enemies.size();
+                out.writeInt(enemies.size());
+                writeInts(offsets, out);
+                List<String> names = new ArrayList<>(enemies.size());
+                for (Enemy enemy : enemies) {
+                    names.add(enemy.getName());
+                }
+                writeStrings(names, out);
+                for (Enemy enemy : enemies) {
+                    out.writeInt(enemy.getMaxHealth());
+                }
+                for (Enemy enemy : enemies) {
+                    out.writeInt(enemy.getAttackPower());
+                }
+                break;
+            }
+            case PROPERTIES: {
+                Map<String, Integer> stringIds = new HashMap<>();
+                List<String> strings = new ArrayList<>();
+                List<Integer> pairs = new ArrayList<>();
+                int[] offsets = new int[count + 1];
+                for (int id = 0; id < count; id++) {
+                    offsets[id] = pairs.size() / 2;
+                    Location location = data.locations.get(ids.nameOf(id));
+                    if (location == null) continue;
+                    for (Map.Entry<String, String> property : location.getAllProperties().entrySet()) {
+                        pairs.add(stringIds.computeIfAbsent(property.getKey(), k -> add(strings, k)));
+                        pairs.add(stringIds.computeIfAbsent(property.getValue(), v -> add(strings, v)));
+                    }
+                }
+                offsets[count] = pairs.size() / 2;
+                writeInts(offsets, out);
+                for (int value : pairs) {
+                    out.writeInt(value);
+                }
+                out.writeInt(strings.size());
+                writeStrings(strings, out);
+                break;
+            }
+            case MISSIONS: {
+                out.writeInt(data.missions.size());
+                for (Mission mission : data.missions) {
+                    out.writeUTF(mission.getTitle());
+                    out.writeUTF(mission.getTargetLocation());
+                    out.writeBoolean(mission.getTargetEnemy() != null);
+                    if (mission.getTargetEnemy() != null) {
+                        out.writeUTF(mission.getTargetEnemy());
+                    }
+                    out.writeUTF(mission.getDescription());
+                    out.writeInt(mission.getReward());
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown section " + section);
+        }
+    }
+
+    private static int add(List<String> strings, String value) {
+        strings.add(value);
+        return strings.size() - 1;
+    }
+
+    // offsets[count + 1] followed by the bytes, with the byte length in front.
+    private static void writeStrings(List<String> strings, DataOutputStream out) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(strings.size());
+        int offset = 0;
+        out.writeInt(0);
+        for (String value : strings) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            offset += bytes.length;
+            out.writeInt(offset);
+        }
+        for (byte[] bytes : encoded) {
+            out.write(bytes);
+        }
+    }
+
+    private static void writeInts(int[] values, DataOutputStream out) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static long align(FileChannel channel) throws IOException {
+        long position = channel.position();
+        long aligned = (position + 7) & ~7L;
+        if (aligned != position) {
+            channel.write(ByteBuffer.allocate((int) (aligned - position)));
+        }
+        return aligned;
+    }
+
+    // ---------------------------------------------------------------- reading
+
+    /**
+     * Opens an image and returns a GameData backed by it.
+     *
+     * @throws IOException If the file is not a valid image of this version.
+     */
+    public static GameData open(String filename) throws IOException {
+        ByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("World image too large: " + filename);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return new WorldImage(mapped).toGameData();
+    }
+
+    /**
+     * Checks the checksum of every section of an image.
+     *
+     * @throws IOException If the image is damaged.
+     */
+    public static void verify(String filename) throws IOException {
+        ByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        WorldImage image = new WorldImage(mapped);
+        for (int section : SECTION_ORDER) {
+            if (crc(image.section(section)) != image.checksums.get(section)) {
+                throw new IOException("Checksum mismatch in section " + section + " of " + filename);
+            }
+        }
+    }
+
+    /**
+     * Returns true if {@code image} exists and is newer than every source file.
+     */
+    public static boolean isUpToDate(String image, String... sources) {
+        File imageFile = new File(image);
+        if (!imageFile.isFile()) {
+            return false;
+        }
+        for (String source : sources) {
+            if (new File(source).lastModified() > imageFile.lastModified()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void readHeader() throws IOException {
+        if (image.capacity() < HEADER_SIZE || image.getLong(0) != MAGIC) {
+            throw new IOException("Not a world image");
+        }
+        int version = image.getInt(8);
+        if (version != VERSION) {
+            throw new IOException("Unsupported world image version " + version);
+        }
+        int stored = image.getInt(HEADER_SIZE - 4);
+        if (crc(image.duplicate().position(0).limit(HEADER_SIZE - 4)) != stored) {
+            throw new IOException("World image header is damaged");
+        }
+        int count = image.getInt(12);
+        for (int i = 0; i < count; i++) {
+            int entry = 16 + i * 24;
+            int id = image.getInt(entry);
+            long offset = image.getLong(entry + 4);
+            long length = image.getLong(entry + 12);
+            if (offset < HEADER_SIZE || offset + length > image.capacity()) {
+                throw new IOException("World image section " + id + " out of bounds");
+            }
+            sections.put(id, image.duplicate().position((int) offset).limit((int) (offset + length)).slice());
+            checksums.put(id, image.getInt(entry + 20));
+        }
+        for (int section : SECTION_ORDER) {
+            if (!sections.containsKey(section)) {
+                throw new IOException("World image is missing section " + section);
+            }
+        }
+    }
+
+    private ByteBuffer section(int id) {
+        return sections.get(id).duplicate();
+    }
+
+    private GameData toGameData() {
+        ByteBuffer names = section(NAMES);
+        int count = names.getInt(0);
+        IntBuffer nameOffsets = slice(names, 4, (count + 1) * 4).asIntBuffer();
+        ByteBuffer nameBytes = slice(names, 4 + (count + 1) * 4, nameOffsets.get(count));
+
+        ByteBuffer idTable = section(ID_TABLE);
+        long[] slots = new long[idTable.getInt(0)];
+        slice(idTable, 4, slots.length * 8).asLongBuffer().get(slots);
+        LocationIds ids = LocationIds.fromImage(nameBytes, nameOffsets, slots, count);
+
+        ByteBuffer graphSection = section(GRAPH);
+        int nodes = graphSection.getInt(0);
+        int edges = graphSection.getInt(4);
+        IntBuffer graphInts = slice(graphSection, 8, (nodes + 1 + 2 * edges) * 4).asIntBuffer();
+        int[] offsets = new int[nodes + 1];
+        int[] targets = new int[edges];
+        int[] costs = new int[edges];
+        graphInts.get(offsets).get(targets).get(costs);
+        ConnectionGraph graph = ConnectionGraph.fromArrays(offsets, targets, costs);
+
+        GameData data = new GameData(ids, graph, readMissions());
+        data.locations = new LocationView(data);
+        data.image = this;
+        return data;
+    }
+
+    private List<Mission> readMissions() {
+        ByteBuffer in = section(MISSIONS);
+        int count = in.getInt();
+        List<Mission> missions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String title = readUTF(in);
+            String target = readUTF(in);
+            String enemy = in.get() != 0 ? readUTF(in) : null;
+            String description = readUTF(in);
+            missions.add(new Mission(title, target, enemy, description, in.getInt()));
+        }
+        return missions;
+    }
+
+    /**
+     * Reads where each location's enemies start in the image's enemy
+     * table, without building any locations; null if the world was not
+     * opened from this image.
+     */
+    int[] enemyOffsets(GameData data) {
+        if (!(data.locations instanceof WorldImage.LocationView)) {
+            return null;
+        }
+        ByteBuffer enemies = section(ENEMIES);
+        int[] offsets = new int[data.locationIds.size() + 1];
+        for (int id = 0; id < offsets.length; id++) {
+            offsets[id] = enemies.getInt(4 + id * 4);
+        }
+        return offsets;
+    }
+
+    /**
+     * Builds the property index from the image, taking the live properties
+     * of any location that has already been materialized.
+     *
+     * @return The index, or null if the locations no longer come from this image.
+     */
+    PropertyIndex buildPropertyIndex(GameData data) {
+        if (!(data.locations instanceof WorldImage.LocationView)) {
+            return null;
+        }
+        return buildPropertyIndex(data, ((LocationView) data.locations).materialized);
+    }
+
+    private PropertyIndex buildPropertyIndex(GameData data, Location[] materialized) {
+        ByteBuffer properties = section(PROPERTIES);
+        int count = data.locationIds.size();
+        IntBuffer ints = properties.asIntBuffer();
+        int pairCount = ints.get(count);
+        int stringBase = (count + 1 + 2 * pairCount) * 4;
+        String[] strings = readStrings(properties, stringBase + 4, properties.getInt(stringBase));
+
+        PropertyIndex index = new PropertyIndex();
+        for (int id = 0; id < count; id++) {
+            if (materialized[id] != null) {
+                materialized[id].attachIndex(index, id);
+                continue;
+            }
+            for (int p = ints.get(id); p < ints.get(id + 1); p++) {
+                int pair = count + 1 + 2 * p;
+                index.add(strings[ints.get(pair)], strings[ints.get(pair + 1)], id);
+            }
+        }
+        return index;
+    }
+
+    /** Builds the Location for an id from the image, or null if it is not one. */
+    private Location readLocation(GameData data, int id) {
+        LocationIds ids = data.locationIds;
+        ByteBuffer locations = section(LOCATIONS);
+        int count = locations.getInt(0);
+        int start = locations.getInt(4 + id * 4);
+        if (start == NOT_A_LOCATION) {
+            return null;
+        }
+        Location location = new Location(ids.nameOf(id), data.getEnemyStore(), id);
+        if (start != NO_DESCRIPTION) {
+            int end = locations.getInt(4 + (count + id) * 4);
+            int blob = 4 + 2 * count * 4 + 4;
+            location.setDescription(decode(locations, blob + start, blob + end));
+        }
+
+        ByteBuffer enemies = section(ENEMIES);
+        int enemyCount = enemies.getInt(0);
+        int first = enemies.getInt(4 + id * 4);
+        int last = enemies.getInt(4 + (id + 1) * 4);
+        int names = 4 + (count + 1) * 4;
+        int nameBytes = names + (enemyCount + 1) * 4;
+        int health = nameBytes + enemies.getInt(names + enemyCount * 4);
+        int attack = health + enemyCount * 4;
+        for (int e = first; e < last; e++) {
+            String name = decode(enemies, nameBytes + enemies.getInt(names + e * 4),
+                                 nameBytes + enemies.getInt(names + (e + 1) * 4));
+            location.addEnemy(name, enemies.getInt(health + e * 4), enemies.getInt(attack + e * 4));
+        }
+
+        ByteBuffer properties = section(PROPERTIES);
+        IntBuffer ints = properties.asIntBuffer();
+        int pairCount = ints.get(count);
+        int stringBase = (count + 1 + 2 * pairCount) * 4;
+        int stringCount = properties.getInt(stringBase);
+        int stringOffsets = stringBase + 4;
+        int stringBytes = stringOffsets + (stringCount + 1) * 4;
+        for (int p = ints.get(id); p < ints.get(id + 1); p++) {
+            int key = ints.get(count + 1 + 2 * p);
+            int value = ints.get(count + 2 + 2 * p);
+            location.addProperty(
+                decode(properties, stringBytes + properties.getInt(stringOffsets + key * 4),
+                       stringBytes + properties.getInt(stringOffsets + (key + 1) * 4)),
+                decode(properties, stringBytes + properties.getInt(stringOffsets + value * 4),
+                       stringBytes + properties.getInt(stringOffsets + (value + 1) * 4)));
+        }
+        return location;
+    }
+
+    private boolean isLocation(int id) {
+        return section(LOCATIONS).getInt(4 + id * 4) != NOT_A_LOCATION;
+    }
+
+    private static String[] readStrings(ByteBuffer buffer, int offsetsAt, int count) {
+        String[] strings = new String[count];
+        int bytesAt = offsetsAt + (count + 1) * 4;
+        for (int i = 0; i < count; i++) {
+            strings[i] = decode(buffer, bytesAt + buffer.getInt(offsetsAt + i * 4),
+                                bytesAt + buffer.getInt(offsetsAt + (i + 1) * 4));
+        }
+        return strings;
+    }
+
+    private static String decode(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.duplicate().position(start).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readUTF(ByteBuffer in) {
+        int length = in.getShort() & 0xffff;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        // Names and descriptions never hold NUL or supplementary characters,
+        // where modified UTF-8 differs from standard UTF-8.
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        return buffer.duplicate().position(offset).limit(offset + length).slice();
+    }
+
+    private static int crc(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * The locations map of an image-backed GameData. A Location is built the
+     * first time it is looked up and kept from then on.
+     */
+    private final class LocationView extends AbstractMap<String, Location> {
+        private final GameData data;
+        private final Location[] materialized;
+        private final Map<String, Location> added = new HashMap<>();
+        private int size = -1;
+
+        LocationView(GameData data) {
+            this.data = data;
+            this.materialized = new Location[data.locationIds.size()];
+        }
+
+        @Override
+        public Location get(Object key) {
+            int id = key instanceof String ? data.locationIds.idOf((String) key) : -1;
+            if (id < 0 || id >= materialized.length) {
+                return added.get(key);
+            }
+            Location location = materialized[id];
+            if (location == null) {
+                location = readLocation(data, id);
+                if (location != null) {
+                    if (data.propertyIndex != null) {
+                        location.attachIndex(data.propertyIndex, id);
+                    }
+                    materialized[id] = location;
+                }
+            }
+            return location;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            int id = key instanceof String ? data.locationIds.idOf((String) key) : -1;
+            if (id < 0 || id >= materialized.length) {
+                return added.containsKey(key);
+            }
+            return materialized[id] != null || isLocation(id);
+        }
+
+        @Override
+        public Location put(String key, Location value) {
+            int id = data.locationIds.idOf(key);
+            if (id < 0 || id >= materialized.length) {
+                return added.put(key, value);
+            }
+            Location previous = get(key);
+            materialized[id] = value;
+            size = -1;
+            return previous;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Location>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Location>>() {
+                @Override
+                public int size() {
+                    return LocationView.this.size();
+                }
+
+                @Override
+                public Iterator<Map.Entry<String, Location>> iterator() {
+                    return new Iterator<Map.Entry<String, Location>>() {
+                        private int next = advance(0);
+                        private final Iterator<Map.Entry<String, Location>> extra = added.entrySet().iterator();
+
+                        private int advance(int from) {
+                            while (from < materialized.length && materialized[from] == null && !isLocation(from)) {
+                                from++;
+                            }
+                            return from;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < materialized.length || extra.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<String, Location> next() {
+                            if (next < materialized.length) {
+                                String name = data.locationIds.nameOf(next);
+                                Location location = get(name);
+                                next = advance(next + 1);
+                                return new SimpleImmutableEntry<>(name, location);
+                            }
+                            if (!extra.hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            return extra.next();
+                        }
+                    };
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            if (size < 0) {
+                int count = 0;
+                for (int id = 0; id < materialized.length; id++) {
+                    if (materialized[id] != null || isLocation(id)) {
+                        count++;
+                    }
+                }
+                size = count;
+            }
+            return size + added.size();
+        }
+    }
+
+    /** Keeps the channel open when a per-section stream is flushed and dropped. */
+    private static final class NonClosingOutputStream extends java.io.FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /**
+     * Compiles the text world files into an image, or verifies one.
+     *
+     * Usage: java WorldImage compile [image] | java WorldImage verify [image]
+     */
+    public static void main(String[] args) throws IOException {
+        String command = args.length > 0 ? args[0] : "compile";
+        String filename = args.length > 1 ? args[1] : "world.img";
+        if (command.equals("verify")) {
+            verify(filename);
+            System.out.println(filename + " is valid.");
+            return;
+        }
+        GameData data = new GameData();
+        LoadReport report = new WorldLoader().load(data,
+            "locations.txt", "connections.txt", "enemies.txt", "properties.txt");
+        report.printTo(System.err);
+        write(data, filename);
+        System.out.println("Compiled " + data.locations.size() + " locations and "
+            + data.connections.edgeCount() + " connections into " + filename);
+    }
+}
@@ -0,0 +1,161 @@
+// File: WorldImageTest.java
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles the world files into an image and checks that the image reads
+ * back as the same world, that verify accepts it, and that damage to the
+ * header or a section is caught. Run from the project directory with
+ * {@code java WorldImageTest}; exits non-zero on failure.
+ */
+public class WorldImageTest {
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        GameData text = new GameData();
+        new WorldLoader().load(text, "locations.txt", "connections.txt", "enemies.txt", "properties.txt");
+
+        Path image = Files.createTempFile("world", ".img");
+        try {
+            WorldImage.write(text, image.toString());
+            WorldImage.verify(image.toString());
+            compare(text, WorldImage.open(image.toString()));
+            checkDamage(image);
+        } finally {
+            Files.deleteIfExists(image);
+        }
+
+        if (failures > 0) {
+            System.err.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("WorldImageTest OK");
+    }
+
+    private static void compare(GameData text, GameData image) {
+        check(image.locationIds.size() == text.locationIds.size(), "same number of names");
+        check(image.locations.size() == text.locations.size(), "same number of locations");
+        for (int id = 0; id < text.locationIds.size(); id++) {
+            String name = text.locationIds.nameOf(id);
+            check(name.equals(image.locationIds.nameOf(id)), "name " + id + " is " + name);
+            check(image.locationIds.idOf(name) == id, "id of " + name);
+            Location expected = text.locations.get(name);
+            Location actual = image.locations.get(name);
+            if (expected == null || actual == null) {
+                check(expected == actual, name + " is a location in both or neither");
+                continue;
+            }
+            check(String.valueOf(expected.getDescription()).equals(String.valueOf(actual.getDescription())),
+                "description of " + name);
+            check(describe(expected.getEnemies()).equals(describe(actual.getEnemies())), "enemies of " + name);
+            check(expected.getAllProperties().equals(actual.getAllProperties()), "properties of " + name);
+            check(text.getEnemyOffsets()[id + 1] == image.getEnemyOffsets()[id + 1], "enemy offset of " + name);
+        }
+
+        ConnectionGraph a = text.connections;
+        ConnectionGraph b = image.connections;
+        check(a.edgeCount() == b.edgeCount(), "same number of connections");
+        for (int node = 0; node < a.nodeCount(); node++) {
+            check(a.degree(node) == b.degree(node), "degree of node " + node);
+            for (int e = a.firstEdge(node); e < a.endEdge(node); e++) {
+                int edge = b.edgeTo(node, a.target(e));
+                check(edge >= 0 && b.cost(edge) == a.cost(e), "edge " + node + " -> " + a.target(e));
+            }
+        }
+
+        check(describe(text.missions).equals(describe(image.missions)), "same missions");
+        for (int id = 0; id < text.locationIds.size(); id++) {
+            Location location = text.locations.get(text.locationIds.nameOf(id));
+            if (location == null) {
+                continue;
+            }
+            location.getAllProperties().forEach((key, value) ->
+                check(contains(image.getPropertyIndex().lookup(key, value), location.getId()),
+                    "index finds " + key + "=" + value));
+        }
+    }
+
+    // Flips one byte of the header, then one of the graph section.
+    private static void checkDamage(Path image) throws IOException {
+        Path copy = Files.createTempFile("world", ".img");
+        try {
+            Files.copy(image, copy, StandardCopyOption.REPLACE_EXISTING);
+            flip(copy, 12 + 4 + 4);   // first section's offset
+            check(fails(() -> WorldImage.open(copy.toString())), "a damaged header is refused");
+
+            Files.copy(image, copy, StandardCopyOption.REPLACE_EXISTING);
+            long graph = sectionOffset(copy, WorldImage.GRAPH);
+            flip(copy, graph + 8);
+            WorldImage.open(copy.toString());   // opening checks only the header
+            check(fails(() -> WorldImage.verify(copy.toString())), "a damaged section fails verify");
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+    }
+
+    private static long sectionOffset(Path file, int section) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+            in.seek(12);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                in.seek(16 + i * 24);
+                if (in.readInt() == section) {
+                    return in.readLong();
+                }
+            }
+        }
+        throw new IOException("No section " + section);
+    }
+
+    private static void flip(Path file, long position) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file.toFile(), "rw")) {
+            out.seek(position);
+            int b = out.read();
+            out.seek(position);
+            out.write(b ^ 0x5a);
+        }
+    }
+
+    private interface IOAction {
+        void run() throws IOException;
+    }
+
+    private static boolean fails(IOAction action) {
+        try {
+            action.run();
+            return false;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private static boolean contains(IntList list, int value) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> describe(List<?> items) {
+        List<String> strings = new ArrayList<>();
+        for (Object item : items) {
+            strings.add(String.valueOf(item));
+        }
+        return strings;
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + what);
+        }
+    }
+}
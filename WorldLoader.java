@@ -0,0 +1,146 @@
+// File: WorldLoader.java
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads all world files into a GameData in two phases. First every file is
+ * split into record-aligned chunks and all chunks of all files are parsed
+ * at the same time on a fork-join pool. Then a single resolve step links
+ * the parsed names to locations in file order and collects every dangling
+ * reference into one LoadReport.
+ */
+public class WorldLoader {
+    private final ForkJoinPool pool;
+    private final long chunkSize;
+    private final GameMetrics metrics = GameMetrics.global();
+
+    public WorldLoader() {
+        this(ForkJoinPool.commonPool(), WorldFileParser.DEFAULT_CHUNK_SIZE);
+    }
+
+    public WorldLoader(ForkJoinPool pool, long chunkSize) {
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Loads the world files into {@code data}.
+     *
+     * @param propertiesFile May be null when there are no properties.
+     * @return The problems found while resolving references.
+     */
+    public LoadReport load(GameData data, String locationsFile, String connectionsFile,
+                           String enemiesFile, String propertiesFile) throws IOException {
+        ForkJoinTask<List<WorldFileParser.LocationRecords>> locations =
+            pool.submit(parseTask("parse locations", locationsFile, true, WorldFileParser::parseLocations));
+        ForkJoinTask<List<WorldFileParser.ConnectionRecords>> connections =
+            pool.submit(parseTask("parse connections", connectionsFile, false, WorldFileParser::parseConnections));
+        ForkJoinTask<List<WorldFileParser.EnemyRecords>> enemies =
+            pool.submit(parseTask("parse enemies", enemiesFile, false, WorldFileParser::parseEnemies));
+        ForkJoinTask<List<WorldFileParser.PropertyRecords>> properties = propertiesFile == null ? null
+            : pool.submit(parseTask("parse properties", propertiesFile, false, WorldFileParser::parseProperties));
+
+        LoadReport report = new LoadReport();
+        List<WorldFileParser.LocationRecords> parsedLocations = join(locations);
+        resolve("resolve locations", locationsFile, () -> data.resolveLocations(parsedLocations));
+        List<WorldFileParser.ConnectionRecords> parsedConnections = join(connections);
+        resolve("resolve connections", connectionsFile, () -> data.resolveConnections(parsedConnections, report));
+        List<WorldFileParser.EnemyRecords> parsedEnemies = join(enemies);
+        resolve("resolve enemies", enemiesFile, () -> data.resolveEnemies(parsedEnemies, report));
+        if (properties != null) {
+            List<WorldFileParser.PropertyRecords> parsedProperties = join(properties);
+            resolve("resolve properties", propertiesFile, () -> data.resolveProperties(parsedProperties, report));
+        }
+        return report;
+    }
+
+    // Times one resolve step, after the parse it needs has finished.
+    private void resolve(String phase, String filename, Runnable step) {
+        GameMetrics.Timer timer = metrics.timeLoad(phase, filename);
+        try {
+            step.run();
+        } finally {
+            timer.close();
+        }
+    }
+
+    private <R> RecursiveTask<List<R>> parseTask(String phase, String filename, boolean linePairs,
+                                                 WorldFileParser.ChunkParser<R> parser) {
+        return new RecursiveTask<List<R>>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected List<R> compute() {
+                GameMetrics.Timer timer = metrics.timeLoad(phase, filename);
+                try {
+                    return parseFile(filename, linePairs, parser);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    timer.close();
+                }
+            }
+        };
+    }
+
+    // Runs inside the pool, so the per-chunk tasks fork from here.
+    private <R> List<R> parseFile(String filename, boolean linePairs, WorldFileParser.ChunkParser<R> parser) throws IOException {
+        List<ByteBuffer> chunks;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long[] offsets = linePairs
+                ? WorldFileParser.linepairBoundaries(channel, chunkSize, this::countLinesInParallel)
+                : WorldFileParser.blankLineBoundaries(channel, chunkSize);
+            chunks = WorldFileParser.map(channel, offsets);
+        }
+        List<RecursiveTask<R>> tasks = new ArrayList<>(chunks.size());
+        for (ByteBuffer chunk : chunks) {
+            tasks.add(new RecursiveTask<R>() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected R compute() {
+                    try {
+                        return parser.parse(chunk);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        }
+        ForkJoinTask.invokeAll(tasks);
+        List<R> records = new ArrayList<>(tasks.size());
+        for (RecursiveTask<R> task : tasks) {
+            records.add(task.join());
+        }
+        return records;
+    }
+
+    private long[] countLinesInParallel(List<ByteBuffer> chunks) {
+        long[] counts = new long[chunks.size()];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks.size());
+        for (int i = 0; i < counts.length; i++) {
+            int index = i;
+            tasks.add(ForkJoinTask.adapt(() -> counts[index] = WorldFileParser.countLines(chunks.get(index))));
+        }
+        ForkJoinTask.invokeAll(tasks);
+        return counts;
+    }
+
+    private static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
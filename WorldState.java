@@ -0,0 +1,246 @@
+// File: WorldState.java
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * What one game has changed in the world. The GameData a game plays in is a
+ * template that no game modifies, so any number of games can share one
+ * loaded world; the health of the enemies a game has fought lives here
+ * instead. Enemies are numbered in one run across all locations, and only
+ * those whose health differs from the template have an entry, so a fresh
+ * game costs nothing and a snapshot only walks the enemies that were fought.
+ *
+ * The entries are kept in a {@link PersistentIntArray}, so {@link #changes}
+ * captures the whole state in constant time and {@link #restore} puts a
+ * captured state back, for checkpoints and undo.
+ */
+public class WorldState {
+    private static final int UNCHANGED = 0;
+    private static final int DEFEATED = 1;      // stored for REMOVED; healths are stored plus two
+
+    private final GameData world;
+    private PersistentIntArray health = PersistentIntArray.EMPTY;   // by enemy number, see GameData#getEnemyOffsets
+
+    public WorldState(GameData world) {
+        this.world = world;
+    }
+
+    /**
+     * Returns an enemy's health in this game.
+     *
+     * @return The health, or {@link SaveCodec#REMOVED} once it has been
+     *         defeated or if there is no such enemy.
+     */
+    public int health(int locationId, int enemyId) {
+        int index = index(locationId, enemyId);
+        if (index < 0) {
+            return SaveCodec.REMOVED;
+        }
+        int stored = health.get(index);
+        if (stored == UNCHANGED) {
+            return location(locationId).getEnemyMaxHealth(enemyId);
+        }
+        return stored == DEFEATED ? SaveCodec.REMOVED : stored - 2;
+    }
+
+    public boolean isPresent(int locationId, int enemyId) {
+        return health(locationId, enemyId) != SaveCodec.REMOVED;
+    }
+
+    /**
+     * Records an enemy's new health, or {@link SaveCodec#REMOVED}. Ignored if
+     * the location has no such enemy.
+     */
+    public void setHealth(int locationId, int enemyId, int value) {
+        int index = index(locationId, enemyId);
+        if (index < 0) {
+            return;
+        }
+        int max = location(locationId).getEnemyMaxHealth(enemyId);
+        int stored;
+        if (value == SaveCodec.REMOVED) {
+            stored = DEFEATED;
+        } else {
+            int clamped = Math.max(0, Math.min(value, max));
+            stored = clamped == max ? UNCHANGED : clamped + 2;
+        }
+        health = health.set(index, stored);
+    }
+
+    /**
+     * Returns the enemies still at a location, in id order, as a read-only
+     * view of the game as it is now; later fights do not change it. Nothing
+     * is copied: each enemy's handle is made as the view is read.
+     */
+    public List<Enemy> enemiesAt(int locationId) {
+        Location location = location(locationId);
+        if (location == null || location.getEnemyCount() == 0) {
+            return Collections.emptyList();
+        }
+        return new EnemiesAt(location, locationId, health);
+    }
+
+    // The enemies at a location in one captured state. Most locations have
+    // lost none, so positions are enemy ids; otherwise the ids still present
+    // are listed once when the view is made.
+    private final class EnemiesAt extends AbstractList<Enemy> implements RandomAccess {
+        private final Location location;
+        private final int locationId;
+        private final PersistentIntArray changes;
+        private final int[] present;   // enemy id by position, null while none are removed
+        private final int size;
+
+        EnemiesAt(Location location, int locationId, PersistentIntArray changes) {
+            this.location = location;
+            this.locationId = locationId;
+            this.changes = changes;
+            int count = location.getEnemyCount();
+            int[] ids = null;
+            int size = 0;
+            for (int e = 0; e < count; e++) {
+                if (stored(changes, locationId, e) == DEFEATED) {
+                    if (ids == null) {
+                        ids = new int[count - 1];
+                        for (int i = 0; i < e; i++) {
+                            ids[i] = i;
+                        }
+                    }
+                } else {
+                    if (ids != null) {
+                        ids[size] = e;
+                    }
+                    size++;
+                }
+            }
+            this.present = ids;
+            this.size = size;
+        }
+
+        @Override
+        public Enemy get(int position) {
+            Objects.checkIndex(position, size);
+            int e = present == null ? position : present[position];
+            return enemy(location, locationId, e, changes);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Finds the enemy still at a location that a typed name means: the one
+     * with the lowest id whose name has a word starting with it, or failing
+     * that, whose name contains it anywhere. The first lookup is a binary
+     * search of the location's {@link EnemyRoster}.
+     *
+     * @return The enemy with its health in this game, or null.
+     */
+    public Enemy findEnemy(int locationId, String name) {
+        Location location = location(locationId);
+        if (location == null || name.isEmpty()) {
+            return null;
+        }
+        String key = name.toLowerCase(Locale.ROOT);
+        int found = location.getRoster().find(key, e -> isPresent(locationId, e));
+        for (int e = 0; found < 0 && e < location.getEnemyCount(); e++) {
+            if (location.getEnemyName(e).toLowerCase(Locale.ROOT).contains(key) && isPresent(locationId, e)) {
+                found = e;
+            }
+        }
+        return found < 0 ? null : enemy(location, locationId, found, health);
+    }
+
+    // The enemy as it is in a state of this game: the template while
+    // untouched, a copy once wounded, null once removed.
+    private Enemy enemy(Location location, int locationId, int enemyId, PersistentIntArray changes) {
+        int stored = stored(changes, locationId, enemyId);
+        if (stored == DEFEATED) {
+            return null;
+        }
+        Enemy template = location.getEnemy(enemyId);
+        return stored == UNCHANGED ? template : new Enemy(template, stored - 2);
+    }
+
+    public boolean hasEnemies(int locationId) {
+        Location location = location(locationId);
+        if (location == null) {
+            return false;
+        }
+        for (int e = 0; e < location.getEnemyCount(); e++) {
+            if (isPresent(locationId, e)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds every enemy that differs from the template to a snapshot.
+     */
+    void addChangesTo(SaveCodec.Snapshot snapshot) {
+        int[] offsets = world.getEnemyOffsets();
+        int locationId = 0;
+        for (int i = health.nextNonZero(0); i >= 0; i = health.nextNonZero(i + 1)) {
+            while (offsets[locationId + 1] <= i) {
+                locationId++;
+            }
+            int stored = health.get(i);
+            snapshot.addEnemyChange(locationId, i - offsets[locationId],
+                stored == DEFEATED ? SaveCodec.REMOVED : stored - 2);
+        }
+    }
+
+    /** Forgets every change, bringing back all enemies at full health. */
+    public void reset() {
+        health = PersistentIntArray.EMPTY;
+    }
+
+    /**
+     * Captures this game's changes. The result never changes, however the
+     * game goes on.
+     */
+    PersistentIntArray changes() {
+        return health;
+    }
+
+    /** Puts back changes captured by {@link #changes}. */
+    void restore(PersistentIntArray changes) {
+        health = changes;
+    }
+
+    /** The number of enemies whose health this game has changed. */
+    public int changedEnemyCount() {
+        return health.nonZeroCount();
+    }
+
+    // An enemy's entry in a state, DEFEATED if there is no such enemy.
+    private int stored(PersistentIntArray changes, int locationId, int enemyId) {
+        int index = index(locationId, enemyId);
+        return index < 0 ? DEFEATED : changes.get(index);
+    }
+
+    // The enemy's number in the run over all locations, or -1 if there is
+    // no such enemy.
+    private int index(int locationId, int enemyId) {
+        int[] offsets = world.getEnemyOffsets();
+        if (locationId < 0 || locationId + 1 >= offsets.length || enemyId < 0) {
+            return -1;
+        }
+        int index = offsets[locationId] + enemyId;
+        return index < offsets[locationId + 1] ? index : -1;
+    }
+
+    private Location location(int locationId) {
+        if (locationId < 0 || locationId >= world.locationIds.size()) {
+            return null;
+        }
+        return world.locations.get(world.locationIds.nameOf(locationId));
+    }
+}
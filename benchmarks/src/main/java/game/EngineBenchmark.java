@@ -0,0 +1,111 @@
+// File: EngineBenchmark.java
+
+package game;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The engine calls made on every turn, on a loaded world. Moving and
+ * searching are free under the rules used here so that energy never runs
+ * out mid-run; the moves themselves are the same.
+ *
+ * A game only changes a little of the world, so moves and fights go back
+ * to a checkpoint now and then to keep each invocation alike. Rolling back
+ * costs the same at every world size and is small next to a fight.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EngineBenchmark {
+    private static final int PATH_LENGTH = 64;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private GameEngine engine;
+    private GameEngine.Checkpoint start;
+    private String[] path;
+    private int step;
+    private Enemy enemy;
+    private GameEngine.Checkpoint beforeFight;
+
+    @Setup(Level.Trial)
+    public void loadWorld() throws IOException {
+        Path dir = WorldGenerator.writeTemporary(size);
+        GameData world = WorldGenerator.load(dir).share();
+        GameRules rules = GameRules.DEFAULT
+            .with(GameRules.Rule.MOVE_COST_PERCENT, 0)
+            .with(GameRules.Rule.SEARCH_ENERGY_COST, 0)
+            .with(GameRules.Rule.INITIAL_ENERGY, 1_000_000);
+        engine = new GameEngine(world, new HeadlessGUI(null), rules, 42L);
+        engine.setCombatLog(CombatResolver.Verbosity.QUIET);
+        engine.startGame("earth");
+        start = engine.checkpoint();
+
+        // Round the ring, which always links each location to the next.
+        path = new String[Math.min(PATH_LENGTH, size - 1)];
+        for (int i = 0; i < path.length; i++) {
+            path[i] = WorldGenerator.name(i + 1);
+        }
+
+        // Location 1 always has an enemy.
+        engine.moveTo(WorldGenerator.name(1));
+        enemy = engine.getEnemiesHere().get(0);
+        beforeFight = engine.checkpoint();
+        engine.rollback(start);
+    }
+
+    @Benchmark
+    public Set<String> getPossibleMoves() {
+        return engine.getPossibleMoves();
+    }
+
+    @Benchmark
+    public List<String> searchLocationsDFS() {
+        return engine.searchLocationsDFS("type", "planet");
+    }
+
+    @Benchmark
+    public boolean moveTo() {
+        if (step == path.length) {
+            engine.rollback(start);
+            step = 0;
+        }
+        return engine.moveTo(path[step++]);
+    }
+
+    @Benchmark
+    public int initiateCombat() {
+        engine.rollback(beforeFight);
+        engine.initiateCombat(enemy);
+        return engine.getEnergy();
+    }
+
+    /** What every move and fight above pays now and then. */
+    @Benchmark
+    public GameEngine.Checkpoint checkpointAndRollback() {
+        GameEngine.Checkpoint checkpoint = engine.checkpoint();
+        engine.rollback(checkpoint);
+        return checkpoint;
+    }
+}
@@ -0,0 +1,74 @@
+// File: LoadBenchmark.java
+
+package game;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading a world from its text files, one file at a time through the
+ * GameData loaders and all at once through the parallel WorldLoader.
+ * Each invocation loads into a fresh GameData.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private String locations;
+    private String connections;
+    private String enemies;
+    private String properties;
+    private Path dir;
+
+    @Setup
+    public void writeWorld() throws IOException {
+        dir = WorldGenerator.writeTemporary(size);
+        locations = dir.resolve(WorldGenerator.LOCATIONS).toString();
+        connections = dir.resolve(WorldGenerator.CONNECTIONS).toString();
+        enemies = dir.resolve(WorldGenerator.ENEMIES).toString();
+        properties = dir.resolve(WorldGenerator.PROPERTIES).toString();
+    }
+
+    @Benchmark
+    public GameData loadLocations() throws IOException {
+        GameData data = new GameData();
+        data.loadLocations(locations);
+        return data;
+    }
+
+    /** The four file loaders of GameData in turn. */
+    @Benchmark
+    public GameData loadSequential() throws IOException {
+        GameData data = new GameData();
+        data.loadLocations(locations);
+        data.loadConnections(connections);
+        data.loadProperties(properties);
+        data.loadEnemies(enemies);
+        return data;
+    }
+
+    @Benchmark
+    public GameData loadParallel() throws IOException {
+        return WorldGenerator.load(dir);
+    }
+}
@@ -0,0 +1,78 @@
+// File: SaveBenchmark.java
+
+package game;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Saving and loading a game that has fought one in a hundred of the
+ * world's enemies. The save goes to saves/ under the working directory,
+ * as in the game, and is removed afterwards.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveBenchmark {
+    private static final String SAVE_FILE = "benchmark.dat";
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private GameEngine engine;
+
+    @Setup(Level.Trial)
+    public void playGame() throws IOException {
+        GameData world = WorldGenerator.load(WorldGenerator.writeTemporary(size)).share();
+        engine = new GameEngine(world, new HeadlessGUI(null), GameRules.DEFAULT, 42L);
+        engine.setCombatLog(CombatResolver.Verbosity.QUIET);
+        engine.startGame("earth");
+        WorldState state = engine.getWorldState();
+        for (int id = 1; id < size; id += 400) {
+            if (WorldGenerator.hasEnemy(id)) {
+                state.setHealth(id, 0, id % 800 == 1 ? SaveCodec.REMOVED : 1);
+            }
+        }
+        engine.saveGame(SAVE_FILE);
+    }
+
+    @Benchmark
+    public int saveGame() throws IOException {
+        engine.saveGame(SAVE_FILE);
+        return engine.getScore();
+    }
+
+    @Benchmark
+    public int loadGame() throws IOException, ClassNotFoundException {
+        engine.loadGame(SAVE_FILE);
+        return engine.getEnergy();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSave() throws IOException {
+        engine.closeJournal();
+        Path file = Paths.get("saves", SAVE_FILE);
+        Files.deleteIfExists(GameJournal.journalFor(file));
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,131 @@
+// File: WorldGenerator.java
+
+package game;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes synthetic worlds in the format of the game's text files, so the
+ * benchmarks can measure the loaders and the engine on worlds far larger
+ * than the one the game ships with. The same size and seed always give
+ * the same files.
+ *
+ * Location 0 is "earth", where games start. Every location links to the
+ * next one around a ring, which keeps the whole world reachable, plus two
+ * random shortcuts; every fourth location has an enemy.
+ */
+public final class WorldGenerator {
+    static final String LOCATIONS = "locations.txt";
+    static final String CONNECTIONS = "connections.txt";
+    static final String ENEMIES = "enemies.txt";
+    static final String PROPERTIES = "properties.txt";
+
+    private static final String[] ENEMY_NAMES = {"Drone", "Bot", "Warrior", "Raider", "Scout", "Sentinel"};
+    private static final String[] TYPES = {"planet", "moon", "station", "asteroid"};
+
+    private WorldGenerator() {
+    }
+
+    /** The name of a generated location. */
+    static String name(int id) {
+        return id == 0 ? "earth" : "loc" + id;
+    }
+
+    /** Whether a generated location has an enemy. */
+    static boolean hasEnemy(int id) {
+        return id % 4 == 1;
+    }
+
+    /**
+     * Writes a world of the given size into a directory.
+     *
+     * @return The directory.
+     */
+    static Path write(Path dir, int size, long seed) throws IOException {
+        Files.createDirectories(dir);
+        GameRandom random = new GameRandom(seed);
+        try (BufferedWriter out = Files.newBufferedWriter(dir.resolve(LOCATIONS), StandardCharsets.UTF_8)) {
+            for (int id = 0; id < size; id++) {
+                out.write(name(id));
+                out.newLine();
+                out.write("Generated location " + id + " of " + size + ".");
+                out.newLine();
+            }
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(dir.resolve(CONNECTIONS), StandardCharsets.UTF_8)) {
+            for (int id = 0; id < size; id++) {
+                int links = size > 1 ? 3 : 0;
+                out.write(name(id));
+                out.newLine();
+                out.write(Integer.toString(links));
+                out.newLine();
+                for (int l = 0; l < links; l++) {
+                    int target = l == 0 ? (id + 1) % size : random.nextInt(size);
+                    out.write(name(target) + " " + (5 + random.nextInt(20)));
+                    out.newLine();
+                }
+                out.newLine();
+            }
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(dir.resolve(ENEMIES), StandardCharsets.UTF_8)) {
+            for (int id = 0; id < size; id++) {
+                if (!hasEnemy(id)) {
+                    continue;
+                }
+                out.write(name(id));
+                out.newLine();
+                out.write(ENEMY_NAMES[random.nextInt(ENEMY_NAMES.length)]);
+                out.newLine();
+                out.write(Integer.toString(40 + random.nextInt(80)));
+                out.newLine();
+                out.write(Integer.toString(8 + random.nextInt(15)));
+                out.newLine();
+                out.newLine();
+            }
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(dir.resolve(PROPERTIES), StandardCharsets.UTF_8)) {
+            for (int id = 0; id < size; id++) {
+                out.write(name(id));
+                out.newLine();
+                out.write("type=" + TYPES[random.nextInt(TYPES.length)]);
+                out.newLine();
+                out.write("system=sys" + (id % 100));
+                out.newLine();
+                out.write("habitable=" + (random.nextInt(10) == 0 ? "yes" : "no"));
+                out.newLine();
+                out.newLine();
+            }
+        }
+        return dir;
+    }
+
+    /** Loads a generated world with the game's parallel loader. */
+    static GameData load(Path dir) throws IOException {
+        GameData data = new GameData();
+        LoadReport report = new WorldLoader().load(data,
+            dir.resolve(LOCATIONS).toString(), dir.resolve(CONNECTIONS).toString(),
+            dir.resolve(ENEMIES).toString(), dir.resolve(PROPERTIES).toString());
+        if (report.hasProblems()) {
+            report.printTo(System.err);
+        }
+        return data;
+    }
+
+    /**
+     * Writes a world into a temporary directory that is deleted when the
+     * JVM exits.
+     */
+    static Path writeTemporary(int size) throws IOException {
+        Path dir = Files.createTempDirectory("world-" + size + "-");
+        write(dir, size, 42L);
+        for (String file : new String[] {LOCATIONS, CONNECTIONS, ENEMIES, PROPERTIES}) {
+            dir.resolve(file).toFile().deleteOnExit();
+        }
+        dir.toFile().deleteOnExit();
+        return dir;
+    }
+}